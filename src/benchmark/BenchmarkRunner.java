@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark suite. Runs the benchmarks with the GC profiler
+ * enabled and stores the results as JSON so two runs can be compared.
+ *
+ * <p>Any standard JMH command line option can be given to narrow or override
+ * the defaults, e.g. {@code MapBenchmark.get -p implementation=LP,DH -p size=100000}.</p>
+ *
+ * @author vlt23
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmd);
+        if (cmd.getIncludes().isEmpty()) {
+            builder.include("benchmark\\..*");
+        }
+        builder.addProfiler(GCProfiler.class);
+        if (!cmd.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+        if (!cmd.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,188 @@
+package benchmark;
+
+import material.Position;
+import material.tree.binarysearchtree.BinarySearchTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches, insertions and range queries on the binary search trees. Sorted
+ * insertion order, as when flights are loaded by date, turns the unbalanced
+ * trees into a list whose depth is the number of elements; random order gives
+ * the usual logarithmic depth. With duplicates &gt; 1 every key is inserted
+ * that many times, as when many flights share a date.
+ *
+ * <p>The values are boxed before the trees are built, so the gc.alloc.rate.norm
+ * of {@code insert} divided by size is what the tree allocates per element.
+ * For the compact trees, which allocate nothing but their nodes, it is also
+ * their footprint per element.</p>
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BinarySearchTreeBenchmark {
+
+    private static final long SEED = 20191105L;
+    private static final int LOOKUPS = 1 << 12;
+
+    public enum Order {
+        SORTED, RANDOM
+    }
+
+    @Param
+    private TreeImplementation implementation;
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param
+    private Order order;
+
+    @Param({"1", "10"})
+    private int duplicates;
+
+    private Integer[] values;
+    private Integer[] lookups;
+    private BinarySearchTree<Integer> tree;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i / duplicates;
+        }
+        Random rand = new Random(SEED);
+        if (order == Order.RANDOM) {
+            for (int i = size - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1);
+                Integer aux = values[i];
+                values[i] = values[j];
+                values[j] = aux;
+            }
+        }
+        tree = build();
+        lookups = new Integer[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = rand.nextInt(size / duplicates);
+        }
+    }
+
+    private BinarySearchTree<Integer> build() {
+        BinarySearchTree<Integer> t = implementation.create();
+        for (Integer value : values) {
+            t.insert(value);
+        }
+        return t;
+    }
+
+    private Integer nextLookup() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    /**
+     * Builds the whole tree.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BinarySearchTree<Integer> insert() {
+        return build();
+    }
+
+    /**
+     * Looks for an element that is in the tree.
+     */
+    @Benchmark
+    public Position<Integer> find() {
+        return tree.find(nextLookup());
+    }
+
+    /**
+     * Collects all the copies of an element.
+     */
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        for (Position<Integer> p : tree.findAll(nextLookup())) {
+            bh.consume(p);
+        }
+    }
+
+    /**
+     * Collects a range covering 1% of the distinct elements.
+     */
+    @Benchmark
+    public void findRange(Blackhole bh) {
+        Integer min = nextLookup();
+        for (Position<Integer> p : tree.findRange(min, min + size / duplicates / 100)) {
+            bh.consume(p);
+        }
+    }
+
+    /**
+     * Reads the first ten elements of a range covering half of the tree, as a
+     * query showing only the first page of results does.
+     */
+    @Benchmark
+    public void findRangeHead(Blackhole bh) {
+        Integer min = nextLookup() / 2;
+        int count = 0;
+        for (Position<Integer> p : tree.findRange(min, min + size / duplicates / 2)) {
+            bh.consume(p);
+            if (++count == 10) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Counts a range covering half of the tree.
+     */
+    @Benchmark
+    public int countRange() {
+        Integer min = nextLookup() / 2;
+        return tree.countRange(min, min + size / duplicates / 2);
+    }
+
+    /**
+     * Picks the element at a random index.
+     */
+    @Benchmark
+    public Position<Integer> select() {
+        return tree.select(nextLookup() * duplicates);
+    }
+
+    /**
+     * Reads the ten elements before a random one, as a page of earlier
+     * results does.
+     */
+    @Benchmark
+    public void predecessorsHead(Blackhole bh) {
+        int count = 0;
+        for (Position<Integer> p : tree.predecessors(tree.find(nextLookup()))) {
+            bh.consume(p);
+            if (++count == 10) {
+                break;
+            }
+        }
+    }
+}
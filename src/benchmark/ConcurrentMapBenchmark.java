@@ -0,0 +1,137 @@
+package benchmark;
+
+import material.maps.ConcurrentHashTableMapSC;
+import material.maps.HashTableMapSC;
+import material.maps.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a map shared by several threads: the separate chaining map
+ * behind a global lock against {@link ConcurrentHashTableMapSC}.
+ *
+ * <p>Every call of {@code mixed} is a lookup or, with probability
+ * 1 - readRatio, an update of an existing key. {@code insertRemove} adds a new
+ * key and removes it. In both the size of the map doesn't change. The score is the
+ * total throughput of all the threads; run it with different thread counts to
+ * see how each map scales, e.g. {@code ConcurrentMapBenchmark -t 1} and then
+ * {@code -t 2}, {@code -t 4}... up to the number of cores.</p>
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentMapBenchmark {
+
+    private static final long SEED = 20191105L;
+    private static final int OPERATIONS = 1 << 16;
+
+    public enum Implementation {
+        SYNCHRONIZED_SC {
+            @Override
+            <K, V> Map<K, V> create(int capacity) {
+                return new SynchronizedMap<>(new HashTableMapSC<>(capacity));
+            }
+        },
+        CONCURRENT_SC {
+            @Override
+            <K, V> Map<K, V> create(int capacity) {
+                return new ConcurrentHashTableMapSC<>(capacity, 64);
+            }
+        };
+
+        abstract <K, V> Map<K, V> create(int capacity);
+    }
+
+    @Param
+    private Implementation implementation;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"1.0", "0.9", "0.5"})
+    private double readRatio;
+
+    private Map<Integer, Integer> map;
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = implementation.create(4 * size);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+            map.put(keys[i], i);
+        }
+    }
+
+    /**
+     * Pre-generated sequence of operations of one thread.
+     */
+    @State(Scope.Thread)
+    public static class Operations {
+        private int[] keyIndexes;
+        private boolean[] reads;
+        private int next;
+        private int insertBase; // first key of insertRemove, in a range of its own
+        private int inserts;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentMapBenchmark bench, ThreadParams threads) {
+            Random rand = new Random(SEED + threads.getThreadIndex());
+            insertBase = bench.size + threads.getThreadIndex() * OPERATIONS;
+            keyIndexes = new int[OPERATIONS];
+            reads = new boolean[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                keyIndexes[i] = rand.nextInt(bench.size);
+                reads[i] = rand.nextDouble() < bench.readRatio;
+            }
+        }
+    }
+
+    /**
+     * A lookup or an update of an existing key, mixed according to readRatio.
+     */
+    @Benchmark
+    public Integer mixed(Operations ops) {
+        int i = ops.next = (ops.next + 1) & (OPERATIONS - 1);
+        Integer key = keys[ops.keyIndexes[i]];
+        if (ops.reads[i]) {
+            return map.get(key);
+        }
+        return map.put(key, i);
+    }
+
+    /**
+     * Inserts a key that is not in the map and removes it, so every call goes
+     * through the insert path (and its load check) while the size stays the
+     * same.
+     */
+    @Benchmark
+    public Integer insertRemove(Operations ops) {
+        ops.inserts = (ops.inserts + 1) & (OPERATIONS - 1);
+        Integer key = ops.insertBase + ops.inserts;
+        map.put(key, key);
+        return map.remove(key);
+    }
+}
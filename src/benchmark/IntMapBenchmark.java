@@ -0,0 +1,140 @@
+package benchmark;
+
+import material.maps.HashTableMapDH;
+import material.maps.HashTableMapLP;
+import material.maps.HashTableMapQP;
+import material.maps.IntHashTableMap;
+import material.maps.Map;
+import material.maps.ProbingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IntHashTableMap} against the generic open addressing maps used with
+ * Integer keys. Keys are random ints held by the caller as primitives, so the
+ * generic maps pay for boxing them as real callers do.
+ *
+ * <p>{@code presizedFill} builds a map already sized for all its keys, so its
+ * gc.alloc.rate.norm divided by size is the footprint per entry (the values
+ * are shared and not counted).</p>
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class IntMapBenchmark {
+
+    private static final long SEED = 20191105L;
+    private static final int LOOKUPS = 1 << 16;
+    private static final Integer VALUE = 1;
+
+    public enum Implementation {
+        LP, QP, DH, INT_LP, INT_QP, INT_DH
+    }
+
+    @Param
+    private Implementation implementation;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private int[] keys;
+    private int[] lookups;
+    private int next;
+    private Map<Integer, Integer> boxed;
+    private IntHashTableMap<Integer> primitive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rand = new Random(SEED);
+        keys = rand.ints().distinct().limit(size).toArray();
+        lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = keys[rand.nextInt(size)];
+        }
+        if (isPrimitive()) {
+            primitive = newPrimitive();
+            for (int key : keys) {
+                primitive.putInt(key, VALUE);
+            }
+        } else {
+            boxed = newBoxed();
+            for (int key : keys) {
+                boxed.put(key, VALUE);
+            }
+        }
+    }
+
+    private boolean isPrimitive() {
+        return implementation.name().startsWith("INT_");
+    }
+
+    private IntHashTableMap<Integer> newPrimitive() {
+        switch (implementation) {
+            case INT_QP:
+                return new IntHashTableMap<>(2 * size, ProbingStrategy.TRIANGULAR);
+            case INT_DH:
+                return new IntHashTableMap<>(2 * size, ProbingStrategy.DOUBLE);
+            default:
+                return new IntHashTableMap<>(2 * size, ProbingStrategy.LINEAR);
+        }
+    }
+
+    private Map<Integer, Integer> newBoxed() {
+        switch (implementation) {
+            case QP:
+                return HashTableMapQP.withExpectedSize(size);
+            case DH:
+                return HashTableMapDH.withExpectedSize(size);
+            default:
+                return HashTableMapLP.withExpectedSize(size);
+        }
+    }
+
+    /**
+     * A successful lookup of a random key.
+     */
+    @Benchmark
+    public Integer get() {
+        next = (next + 1) & (LOOKUPS - 1);
+        int key = lookups[next];
+        return (primitive != null) ? primitive.getInt(key) : boxed.get(key);
+    }
+
+    /**
+     * Builds a map of the benchmark size without any rehash.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object presizedFill() {
+        if (isPrimitive()) {
+            IntHashTableMap<Integer> m = newPrimitive();
+            for (int key : keys) {
+                m.putInt(key, VALUE);
+            }
+            return m;
+        }
+        Map<Integer, Integer> m = newBoxed();
+        for (int key : keys) {
+            m.put(key, VALUE);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Families of keys used by the benchmarks. Every family generates distinct keys
+ * from a fixed seed so that runs are reproducible.
+ *
+ * @author vlt23
+ */
+public enum KeyDistribution {
+
+    /**
+     * Random distinct Integer keys.
+     */
+    INTEGER {
+        @Override
+        Object key(int id, Random rand) {
+            return rand.nextInt();
+        }
+    },
+    /**
+     * Random distinct String keys shaped like flight identifiers.
+     */
+    STRING {
+        @Override
+        Object key(int id, Random rand) {
+            return "IBE" + rand.nextInt(Integer.MAX_VALUE);
+        }
+    },
+    /**
+     * Keys whose hash codes are packed in a narrow range: every
+     * {@link ClusteredKey#CLUSTER} consecutive keys share the same hash code.
+     */
+    CLUSTERED {
+        @Override
+        Object key(int id, Random rand) {
+            return new ClusteredKey(id);
+        }
+    };
+
+    /**
+     * Key with a deliberately poor hash code. Equality is based on the whole id
+     * but the hash code only on id / CLUSTER.
+     */
+    static final class ClusteredKey {
+
+        static final int CLUSTER = 8;
+
+        private final int id;
+
+        ClusteredKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id / CLUSTER;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ClusteredKey && ((ClusteredKey) o).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "CK(" + id + ")";
+        }
+    }
+
+    abstract Object key(int id, Random rand);
+
+    /**
+     * Generates n distinct keys.
+     *
+     * @param n    number of keys
+     * @param seed random seed
+     * @return an array with n distinct keys
+     */
+    public Object[] generate(int n, long seed) {
+        Random rand = new Random(seed);
+        Set<Object> seen = new HashSet<>();
+        Object[] keys = new Object[n];
+        int id = 0;
+        int i = 0;
+        while (i < n) {
+            Object k = key(id++, rand);
+            if (seen.add(k)) {
+                keys[i++] = k;
+            }
+        }
+        return keys;
+    }
+}
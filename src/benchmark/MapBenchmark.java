@@ -0,0 +1,214 @@
+package benchmark;
+
+import material.maps.Cursor;
+import material.maps.Entry;
+import material.maps.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the basic operations of every material.maps implementation.
+ *
+ * <p>The parameter space covers the map implementation, the number of entries,
+ * the load factor the table is filled to (the initial capacity is chosen as
+ * size / loadFactor, maps that don't support that load factor grow while they
+ * are filled), the fraction of lookups that hit an existing key and the key
+ * distribution. Run it through {@link BenchmarkRunner} to get the
+ * allocation rate (gc.alloc.rate.norm) next to every score.</p>
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MapBenchmark {
+
+    private static final long SEED = 20191105L;
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param
+    private MapImplementation implementation;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"0.25", "0.45", "0.85"})
+    private double loadFactor;
+
+    @Param({"1.0", "0.5", "0.0"})
+    private double hitRatio;
+
+    @Param
+    private KeyDistribution keyDistribution;
+
+    private Map<Object, Integer> map;
+    private Object[] present;
+    private Object[] absent;
+    private Object[] lookups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] keys = keyDistribution.generate(2 * size, SEED);
+        present = new Object[size];
+        absent = new Object[size];
+        System.arraycopy(keys, 0, present, 0, size);
+        System.arraycopy(keys, size, absent, 0, size);
+
+        map = implementation.create(capacity());
+        for (int i = 0; i < size; i++) {
+            map.put(present[i], i);
+        }
+
+        Random rand = new Random(SEED);
+        lookups = new Object[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            Object[] source = rand.nextDouble() < hitRatio ? present : absent;
+            lookups[i] = source[rand.nextInt(size)];
+        }
+    }
+
+    private int capacity() {
+        return (int) Math.ceil(size / loadFactor);
+    }
+
+    private Object nextLookup() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    /**
+     * A single lookup; hits and misses are mixed according to hitRatio.
+     */
+    @Benchmark
+    public Integer get() {
+        return map.get(nextLookup());
+    }
+
+    /**
+     * Same as {@link #get()} but sampling the latency of every call, to report
+     * percentiles such as p99 instead of the mean throughput.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer getLatency() {
+        return map.get(nextLookup());
+    }
+
+    /**
+     * Inserts an absent key and removes it again, so the map keeps its size and
+     * the removal leaves behind whatever the implementation leaves behind.
+     */
+    @Benchmark
+    public Integer putRemove() {
+        next = (next + 1) & (LOOKUPS - 1);
+        Object key = absent[next % size];
+        map.put(key, next);
+        return map.remove(key);
+    }
+
+    /**
+     * Overwrites the value of an existing key.
+     */
+    @Benchmark
+    public Integer update() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return map.put(present[next % size], next);
+    }
+
+    /**
+     * Builds a map of the benchmark size from its default capacity, so every
+     * growth rehash is paid for.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Object, Integer> fill() {
+        Map<Object, Integer> m = implementation.create(16);
+        for (int i = 0; i < size; i++) {
+            m.put(present[i], i);
+        }
+        return m;
+    }
+
+    /**
+     * Builds a map with room for all the entries from the start, so no rehash
+     * happens and gc.alloc.rate.norm divided by size is the footprint per entry
+     * (keys and values excluded).
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Object, Integer> presizedFill() {
+        Map<Object, Integer> m = implementation.create(2 * size + 1);
+        for (int i = 0; i < size; i++) {
+            m.put(present[i], 0); // a cached Integer, only the map is allocated
+        }
+        return m;
+    }
+
+    /**
+     * Builds the same map as {@link #fill()} with a single putAll call, which
+     * sizes the table once instead of growing it step by step.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Object, Integer> putAll() {
+        Map<Object, Integer> m = implementation.create(16);
+        m.putAll(map);
+        return m;
+    }
+
+    /**
+     * Walks every entry of the map.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterate(Blackhole bh) {
+        for (Entry<Object, Integer> e : map.entries()) {
+            bh.consume(e.getKey());
+            bh.consume(e.getValue());
+        }
+    }
+
+    /**
+     * Walks every entry of the map with forEachEntry.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void forEachEntry(Blackhole bh) {
+        map.forEachEntry((k, v) -> {
+            bh.consume(k);
+            bh.consume(v);
+        });
+    }
+
+    /**
+     * Walks every entry of the map with a cursor.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void cursor(Blackhole bh) {
+        Cursor<Object, Integer> c = map.cursor();
+        while (c.advance()) {
+            bh.consume(c.key());
+            bh.consume(c.value());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import material.maps.HashTableMapCuckoo;
+import material.maps.HashTableMapDH;
+import material.maps.HashTableMapFlatSC;
+import material.maps.HashTableMapLP;
+import material.maps.HashTableMapQP;
+import material.maps.HashTableMapRH;
+import material.maps.HashTableMapSC;
+import material.maps.Map;
+
+/**
+ * Map implementations measured by the benchmarks. Each constant knows how to
+ * build an empty map of the given initial capacity.
+ *
+ * @author vlt23
+ */
+public enum MapImplementation {
+
+    LP {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapLP<>(capacity);
+        }
+    },
+    QP {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapQP<>(capacity);
+        }
+    },
+    DH {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapDH<>(capacity);
+        }
+    },
+    LP_POW2 {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapLP<>(capacity, true);
+        }
+    },
+    QP_POW2 {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapQP<>(capacity, true);
+        }
+    },
+    DH_POW2 {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapDH<>(capacity, true);
+        }
+    },
+    RH {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapRH<>(capacity);
+        }
+    },
+    SC {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapSC<>(capacity);
+        }
+    },
+    FLAT_SC {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapFlatSC<>(capacity);
+        }
+    },
+    CUCKOO {
+        @Override
+        public <K, V> Map<K, V> create(int capacity) {
+            return new HashTableMapCuckoo<>(capacity);
+        }
+    };
+
+    /**
+     * Creates an empty map with the given initial capacity.
+     *
+     * @param capacity initial capacity of the bucket array
+     * @return a new empty map
+     */
+    public abstract <K, V> Map<K, V> create(int capacity);
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import material.maps.ProbingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single probe of every {@link ProbingStrategy}: each invocation
+ * walks a fixed number of probes of a random hash code over a power-of-two int
+ * array, the way {@link material.maps.IntHashTableMap} does, and the score is
+ * the time per probe. A small table measures the offset arithmetic, a large one
+ * adds the cache misses caused by the spread of the sequence.
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProbeCostBenchmark {
+
+    private static final int PROBES = 32;
+    private static final int HASHES = 1 << 12;
+
+    public enum Sequence {
+        LINEAR(ProbingStrategy.LINEAR),
+        QUADRATIC(ProbingStrategy.QUADRATIC),
+        TRIANGULAR(ProbingStrategy.TRIANGULAR),
+        DOUBLE(ProbingStrategy.DOUBLE),
+        /**
+         * The former quadratic offsets, 7i + 11i^2 with Math.pow.
+         */
+        MATH_POW(null);
+
+        private final ProbingStrategy strategy;
+
+        Sequence(ProbingStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        int offset(int hash, int i, int capacity) {
+            if (strategy == null) {
+                return 7 * i + 11 * (int) Math.pow(i, 2);
+            }
+            return strategy.offset(hash, i, capacity);
+        }
+
+        int step(int hash, int capacity) {
+            return (strategy == null) ? 0 : strategy.step(hash, capacity);
+        }
+    }
+
+    @Param
+    private Sequence sequence;
+
+    @Param({"1024", "4194304"})
+    private int capacity;
+
+    private int[] table;
+    private int[] hashes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        table = rand.ints(capacity).toArray();
+        hashes = rand.ints(HASHES).toArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int probe() {
+        int hash = hashes[next];
+        next = (next + 1) & (HASHES - 1);
+        int mask = capacity - 1;
+        int home = hash & mask;
+        int step = sequence.step(hash, capacity);
+        int index = home;
+        int sum = 0;
+        for (int i = 1; i <= PROBES; i++) {
+            sum += table[index];
+            index = (step != 0) ? (index + step) & mask
+                    : (home + sequence.offset(hash, i, capacity)) & mask;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import material.maps.AbstractHashTableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the probe sequences of the open addressing maps. The setup of every
+ * trial fills a map up to the given load factor and prints the distribution of
+ * probe lengths of successful and unsuccessful lookups (mean, percentiles and
+ * maximum); the benchmarks measure the time of those lookups.
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProbeLengthBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"LP", "QP", "DH", "LP_POW2", "QP_POW2", "DH_POW2"})
+    private MapImplementation implementation;
+
+    @Param({"INTEGER", "CLUSTERED"})
+    private KeyDistribution keyDistribution;
+
+    @Param({"0.25", "0.5"})
+    private double loadFactor;
+
+    @Param({"100000"})
+    private int size;
+
+    private Object[] keys;
+    private Object[] missingKeys;
+    private AbstractHashTableMap<Object, Object> map;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] all = keyDistribution.generate(2 * size, SEED);
+        keys = Arrays.copyOfRange(all, 0, size);
+        missingKeys = Arrays.copyOfRange(all, size, 2 * size);
+        map = (AbstractHashTableMap<Object, Object>) implementation.<Object, Object>create((int) (size / loadFactor));
+        for (Object k : keys) {
+            map.put(k, k);
+        }
+        System.out.println();
+        System.out.println(implementation + " " + keyDistribution + " load " + loadFactor
+                + " hits: " + distribution(keys) + "; misses: " + distribution(missingKeys));
+    }
+
+    private String distribution(Object[] lookups) {
+        int[] lengths = new int[lookups.length];
+        long total = 0;
+        for (int i = 0; i < lookups.length; i++) {
+            lengths[i] = map.probeLength(lookups[i]);
+            total += lengths[i];
+        }
+        Arrays.sort(lengths);
+        return String.format("mean %.2f, p50 %d, p90 %d, p99 %d, max %d",
+                (double) total / lengths.length, percentile(lengths, 0.5), percentile(lengths, 0.9),
+                percentile(lengths, 0.99), lengths[lengths.length - 1]);
+    }
+
+    private static int percentile(int[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+
+    @Benchmark
+    public Object getHit() {
+        next = (next + 1 == size) ? 0 : next + 1;
+        return map.get(keys[next]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        next = (next + 1 == size) ? 0 : next + 1;
+        return map.get(missingKeys[next]);
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import material.maps.AbstractHashTableMap;
+import material.maps.Map;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts new keys into a table that keeps growing, with and without
+ * incremental rehash. With a regular rehash a few puts pay for moving the
+ * whole table. They are too rare to show up in sampled latencies, so every put
+ * is timed and the ones slower than 10 ms are reported as the slowPuts counter
+ * next to the throughput (GC pauses are counted too, in both modes).
+ *
+ * @author vlt23
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RehashLatencyBenchmark {
+
+    private static final int KEYS = 1 << 22;
+    private static final long SLOW_PUT_NANOS = 10_000_000;
+
+    /**
+     * Number of puts slower than 10 ms, per iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Stalls {
+        public long slowPuts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            slowPuts = 0;
+        }
+    }
+
+    @Param({"LP", "DH", "LP_POW2", "DH_POW2"})
+    private MapImplementation implementation;
+
+    @Param({"false", "true"})
+    private boolean incremental;
+
+    private Integer[] keys;
+    private Map<Integer, Integer> map;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        newMap();
+    }
+
+    private void newMap() {
+        map = implementation.create(16);
+        ((AbstractHashTableMap<Integer, Integer>) map).setIncrementalRehash(incremental);
+        next = 0;
+    }
+
+    /**
+     * Inserts a key that is not in the map. When all the keys are in, the map
+     * is replaced by an empty one.
+     */
+    @Benchmark
+    public Integer put(Stalls stalls) {
+        if (next == KEYS) {
+            newMap();
+        }
+        Integer key = keys[next++];
+        long start = System.nanoTime();
+        Integer previous = map.put(key, key);
+        if (System.nanoTime() - start > SLOW_PUT_NANOS) {
+            stalls.slowPuts++;
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import material.maps.Entry;
+import material.maps.Map;
+
+import java.util.Iterator;
+
+/**
+ * Makes any map thread safe with a single lock around every operation, the
+ * usual way of sharing a non concurrent map. Iterators are not guarded.
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class SynchronizedMap<K, V> implements Map<K, V> {
+
+    private final Map<K, V> map;
+
+    public SynchronizedMap(Map<K, V> map) {
+        this.map = map;
+    }
+
+    @Override
+    public synchronized int size() {
+        return map.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public synchronized V remove(K key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends K, ? extends V> other) {
+        map.putAll(other);
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return map.keys();
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return map.values();
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return map.entries();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return map.iterator();
+    }
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import material.tree.binarysearchtree.AVLTree;
+import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactAVLTree;
+import material.tree.binarysearchtree.CompactBinarySearchTree;
+import material.tree.binarysearchtree.CompactRBTree;
+import material.tree.binarysearchtree.LinkedBinarySearchTree;
+import material.tree.binarysearchtree.RBTree;
+
+/**
+ * Binary search tree implementations measured by the benchmarks. The COMPACT
+ * ones use a single node per element instead of the external nodes of the
+ * linked ones.
+ *
+ * @author vlt23
+ */
+public enum TreeImplementation {
+
+    LINKED {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new LinkedBinarySearchTree<>();
+        }
+    },
+    COMPACT {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new CompactBinarySearchTree<>();
+        }
+    },
+    AVL {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new AVLTree<>();
+        }
+    },
+    COMPACT_AVL {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new CompactAVLTree<>();
+        }
+    },
+    RB {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new RBTree<>();
+        }
+    },
+    COMPACT_RB {
+        @Override
+        public <E> BinarySearchTree<E> create() {
+            return new CompactRBTree<>();
+        }
+    };
+
+    /**
+     * Creates an empty tree with the default comparator.
+     *
+     * @return a new empty tree
+     */
+    public abstract <E> BinarySearchTree<E> create();
+}
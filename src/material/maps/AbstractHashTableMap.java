@@ -1,37 +1,68 @@
 package material.maps;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * <p>This class provides a skeletal implementation of the Map interface. A hash table data
  * structure that uses open addressing to handle collisions. To implement a map the programmer
- * needs to provide an implementation for the {@link #offset(K, int) offset} method which
- * determines de probe sequence.</p>
+ * needs to provide an implementation for the {@link #offset(int, int, int) offset} method
+ * which determines de probe sequence.</p>
  *
  * <p>The hash function uses the built-in hashCode method and the
  * multiply-add-and-divide method. The load factor is kept less than or equal to
  * 0.5. When the load factor reaches 0.5, the entries are rehashed into a new
  * bucket array with twice the capacity.</p>
  *
+ * <p>Removed entries leave AVAILABLE markers behind. When entries and markers
+ * together fill three quarters of the table, the live entries are reinserted
+ * into the same bucket array so that unsuccessful searches don't degrade under
+ * put/remove churn.</p>
+ *
+ * <p>When the load factor drops below 0.125 the table is halved, never below
+ * its initial capacity, so that memory follows the live entries. The gap with
+ * the growth threshold keeps the table from resizing back and forth.
+ * {@link #trimToSize()} shrinks it to the minimum capacity explicitly.</p>
+ *
+ * <p>Maps created in power-of-two mode round the capacity up to a power of two,
+ * replace the MAD method by a multiply and xor-shift with random odd multiplier
+ * and random shift, and compute every bucket index with a bit mask instead of
+ * the modulo operator.</p>
+ *
+ * <p>With {@link #setIncrementalRehash(boolean) incremental rehash} enabled, growing
+ * the table doesn't move every entry at once. The old bucket array is kept and
+ * every put or remove moves a few of its slots to the new one, while lookups
+ * check both arrays. This bounds the work done by any single operation at the
+ * cost of some extra memory until the migration is over. Lookups don't advance
+ * the migration, so a map that stops being modified keeps both arrays.</p>
+ *
+ * <p>Statistics about probe lengths, tombstones and rehashes can be enabled
+ * through the {@link Monitorable} interface.</p>
+ *
  * @param <K> Key type
  * @param <V> Value type
  * @author R. Cabido, A. Duarte, J. Velez, and vlt23
  */
-abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
+abstract public class AbstractHashTableMap<K, V> implements Map<K, V>, Monitorable {
 
     /**
      * @param <T> Key type
      * @param <U> Value type
      */
-    private static class HashEntry<T, U> implements Entry<T, U> {
+    protected static class HashEntry<T, U> implements Entry<T, U> {
 
         protected T key;
         protected U value;
+        protected final int hash; // cached key.hashCode()
 
-        public HashEntry(T k, U v) {
+        public HashEntry(T k, U v, int h) {
             key = k;
             value = v;
+            hash = h;
         }
 
         @Override
@@ -81,13 +112,20 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
 
         private int pos;
         private HashEntry<T, U>[] bucket;
+        private HashEntry<T, U>[] rest; // second array to walk, or null
         private Entry<T, U> AVAILABLE;
 
         public HashTableMapIterator(HashEntry<T, U>[] b, Entry<T, U> av, int numElems) {
+            this(b, null, av, numElems);
+        }
+
+        public HashTableMapIterator(HashEntry<T, U>[] b, HashEntry<T, U>[] rest, Entry<T, U> av, int numElems) {
             this.bucket = b;
+            this.rest = rest;
             this.AVAILABLE = av;
             if (numElems == 0) {
                 this.pos = bucket.length;
+                this.rest = null;
             } else {
                 this.pos = 0;
                 goToNextElement(0);
@@ -100,6 +138,11 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
                     ((this.bucket[this.pos] == null) || (this.bucket[this.pos] == this.AVAILABLE))) {
                 this.pos++;
             }
+            if (this.pos == bucket.length && this.rest != null) {
+                this.bucket = this.rest;
+                this.rest = null;
+                goToNextElement(0);
+            }
         }
 
         @Override
@@ -110,9 +153,9 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
         @Override
         public Entry<T, U> next() {
             if (hasNext()) {
-                int currentPos = this.pos;
+                Entry<T, U> toReturn = this.bucket[this.pos];
                 goToNextElement(this.pos + 1);
-                return this.bucket[currentPos];
+                return toReturn;
             } else {
                 throw new IllegalStateException("The map has not more elements");
             }
@@ -172,28 +215,137 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
         }
     }
 
-    protected static class HashEntryIndex {
+    /**
+     * A bucket array together with the hash factors its entries were placed
+     * with, published as a whole for the statistics, which read it from other
+     * threads.
+     */
+    private static final class Layout<T, U> {
+        final HashEntry<T, U>[] bucket;
+        final long scale, shift;
 
-        int index;
-        boolean found;
+        Layout(HashEntry<T, U>[] bucket, long scale, long shift) {
+            this.bucket = bucket;
+            this.scale = scale;
+            this.shift = shift;
+        }
+    }
 
-        public HashEntryIndex(int index, boolean f) {
-            this.index = index;
-            this.found = f;
+    /**
+     * Splits the positions of the bucket array followed, during an incremental
+     * rehash, by those of the old one.
+     */
+    private static class HashTableMapSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final HashEntry<T, U>[] first;
+        private final HashEntry<T, U>[] second; // old bucket array, or null
+        private final Entry<T, U> available;
+
+        HashTableMapSpliterator(HashEntry<T, U>[] first, HashEntry<T, U>[] second, Entry<T, U> available,
+                                int origin, int fence, long est, int characteristics) {
+            super(origin, fence, est, characteristics);
+            this.first = first;
+            this.second = second;
+            this.available = available;
         }
 
-        // Easy visualization
         @Override
-        public String toString() {
-            return "(" + this.index + ", " + this.found + ")";
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new HashTableMapSpliterator<>(first, second, available, origin, fence, est, characteristics);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            while (index < fence) {
+                int i = index++;
+                HashEntry<T, U> e = (i < first.length) ? first[i] : second[i - first.length];
+                if ((e != null) && (e != available)) {
+                    action.accept(e);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Cursor over the live slots of the bucket array and, during an
+     * incremental rehash, of the old one.
+     */
+    private class HashTableMapCursor implements Cursor<K, V> {
+
+        private HashEntry<K, V>[] array = bucket;
+        private HashEntry<K, V>[] rest = oldBucket; // second array to walk, or null
+        private int pos = -1;
+        private HashEntry<K, V> current;
+
+        @Override
+        public boolean advance() {
+            while (true) {
+                while (++pos < array.length) {
+                    HashEntry<K, V> e = array[pos];
+                    if ((e != null) && (e != AVAILABLE)) {
+                        current = e;
+                        return true;
+                    }
+                }
+                if (rest == null) {
+                    current = null;
+                    return false;
+                }
+                array = rest;
+                rest = null;
+                pos = -1;
+            }
+        }
+
+        @Override
+        public K key() {
+            return entry().key;
+        }
+
+        @Override
+        public V value() {
+            return entry().value;
+        }
+
+        private HashEntry<K, V> entry() {
+            if (current == null) {
+                throw new IllegalStateException("The cursor is not on an entry.");
+            }
+            return current;
         }
     }
 
     protected int n; // number of entries in the dictionary
+    protected int tombstones; // number of AVAILABLE markers in the bucket array
     protected int prime, capacity; // prime factor and capacity of bucket array
+    protected final int minCapacity; // the table is not shrunk automatically below this capacity
     protected long scale, shift; // the shift and scaling factors
     protected HashEntry<K, V>[] bucket; // bucket array
-    protected final Entry<K, V> AVAILABLE = new HashEntry<>(null, null);
+    protected final boolean powerOfTwo; // capacity is a power of two and indexes are masked
+    protected final Entry<K, V> AVAILABLE = new HashEntry<>(null, null, 0);
+    private volatile Layout<K, V> layout; // bucket and the factors above, for chainLengths
+
+    /**
+     * Value returned by {@link #findEntry(Object) findEntry} when the key is not in the
+     * table and the probe sequence did not reach any free slot.
+     */
+    protected static final int NO_SLOT = Integer.MIN_VALUE;
+
+    /**
+     * Number of slots of the old bucket array moved by every put or remove
+     * while an incremental rehash is in progress.
+     */
+    private static final int MIGRATION_STEP = 8;
+
+    private boolean incremental; // grow the table incrementally
+    private HashEntry<K, V>[] oldBucket; // bucket array being drained, or null
+    private int oldCapacity; // capacity of the old bucket array
+    private long oldScale, oldShift; // hash function of the old bucket array
+    private int migrated; // slots of the old bucket array already moved
+
+    private StatsRecorder stats; // null unless statistics are enabled
 
     /**
      * Creates a hash table with prime factor 109345121 and capacity 1000.
@@ -211,21 +363,43 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
         this(109345121, cap); // reusing the constructor HashTableMap(int p, int cap)
     }
 
+    /**
+     * Creates a hash table with prime factor 109345121 and given capacity.
+     *
+     * @param cap        initial capacity
+     * @param powerOfTwo if true, the capacity is rounded up to a power of two
+     *                   and bucket indexes are computed with a bit mask
+     */
+    protected AbstractHashTableMap(int cap, boolean powerOfTwo) {
+        this(109345121, cap, powerOfTwo);
+    }
+
     /**
      * Creates a hash table with the given prime factor and capacity.
      *
      * @param p   prime number
      * @param cap initial capacity
      */
-    @SuppressWarnings("unchecked")
     protected AbstractHashTableMap(int p, int cap) {
+        this(p, cap, false);
+    }
+
+    /**
+     * Creates a hash table with the given prime factor and capacity.
+     *
+     * @param p          prime number
+     * @param cap        initial capacity
+     * @param powerOfTwo if true, the capacity is rounded up to a power of two
+     *                   and bucket indexes are computed with a bit mask
+     */
+    protected AbstractHashTableMap(int p, int cap, boolean powerOfTwo) {
         this.n = 0;
         this.prime = p;
-        this.capacity = cap;
-        this.bucket = (HashEntry<K, V>[]) new HashEntry[capacity]; // safe cast
-        Random rand = new Random();
-        this.scale = rand.nextInt(prime - 1) + 1;
-        this.shift = rand.nextInt(prime);
+        this.powerOfTwo = powerOfTwo;
+        this.capacity = adjustCapacity(cap);
+        this.minCapacity = this.capacity;
+        this.bucket = newBucketArray(capacity);
+        randomizeHash();
     }
 
     @Override
@@ -244,101 +418,340 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
      * should always be 0 for i=0 since that means we haven't had any collisions
      * for this key yet.
      *
-     * @param key we are checking/inserting
-     * @param i   number of times this key has caused a collision
+     * @param hash     hash code of the key we are checking/inserting
+     * @param i        number of times this key has caused a collision
+     * @param capacity capacity of the bucket array being probed
      * @return the offset to be added to the start index
      */
-    abstract protected int offset(K key, int i);
+    abstract protected int offset(int hash, int i, int capacity);
+
+    /**
+     * Returns the distance between consecutive probes of a key, for probe
+     * sequences of the form index, index + step, index + 2 step... It is
+     * computed once per lookup, so every further probe costs an addition. The
+     * default returns 0, which means the probes are given by {@link #offset}.
+     *
+     * @param hash     hash code of the key
+     * @param capacity capacity of the bucket array being probed
+     * @return a step between 1 and capacity, or 0
+     */
+    protected int probeStep(int hash, int capacity) {
+        return 0;
+    }
+
+    /**
+     * Returns the index of the i-th probe of a key from the previous one.
+     */
+    private int nextProbe(int hashValue, int index, int step, int hash, int i, int capacity) {
+        if (step == 0) {
+            return probeIndex(hashValue, offset(hash, i, capacity), capacity);
+        }
+        index += step;
+        if (powerOfTwo) {
+            return index & (capacity - 1);
+        }
+        return (index >= capacity) ? index - capacity : index;
+    }
 
     /**
-     * Looks for a given key in the map an returns a HashEntryIndex object
-     * with information about where the key was found (if found) or which
-     * is the first free location where it could be placed (if not found).
+     * Looks for a given key in the map. The result is encoded in a single int so
+     * that lookups do not allocate: a non-negative value is the index where the
+     * key was found, a negative value -(index + 1) means the key is not in the map
+     * and index is the first free location where it could be placed. If there is
+     * no such location {@link #NO_SLOT} is returned.
      *
      * @param key the key we are looking for
-     * @return A HashEntryIndex
+     * @return the encoded index
      * @throws IllegalStateException for a null key
      */
-    protected HashEntryIndex findEntry(K key) throws IllegalStateException {
-        int avail = -1;
+    protected int findEntry(K key) throws IllegalStateException {
         checkKey(key);
-        int hashValue = hashValue(key);
+        return findEntry(key, key.hashCode());
+    }
+
+    /**
+     * Same as {@link #findEntry(Object) findEntry(key)} for a key whose hash code
+     * has already been computed. Entries whose cached hash code differs from the
+     * given one are skipped without calling equals.
+     *
+     * @param key  the key we are looking for
+     * @param hash key.hashCode()
+     * @return the encoded index
+     */
+    protected int findEntry(K key, int hash) {
+        int avail = -1;
+        int hashValue = hashValue(hash);
+        int step = probeStep(hash, capacity);
         int index = hashValue;
         int retry = 0;
         do {
-            Entry<K, V> e = bucket[index];
+            HashEntry<K, V> e = bucket[index];
             if (e == null) {
                 if (avail < 0) {
                     avail = index; // key is not in table
                 }
                 break;
-            } else if (key.equals(e.getKey())) { // we have found our key
-                return new HashEntryIndex(index, true); // key found
             } else if (e == AVAILABLE) { // bucket is deactivated
                 if (avail < 0) {
                     avail = index; // remember that this slot is available
                 }
+            } else if (e.hash == hash && key.equals(e.key)) { // we have found our key
+                if (stats != null) {
+                    stats.lookup(retry + 1);
+                }
+                return index; // key found
             }
             retry++;
-            index = (hashValue + offset(key, retry)) % capacity; // keep looking
+            index = nextProbe(hashValue, index, step, hash, retry, capacity); // keep looking
         } while (retry < this.capacity);
-        return new HashEntryIndex(avail, false); // first empty or available slot
+        if (stats != null) {
+            stats.lookup(Math.min(retry + 1, capacity));
+        }
+        return (avail < 0) ? NO_SLOT : -(avail + 1); // first empty or available slot
+    }
+
+    /**
+     * Returns the first empty slot in the probe sequence of a hash code, or
+     * {@link #NO_SLOT} if there is none. Used to place entries that are known
+     * not to be in the table, so no key is compared.
+     *
+     * @param hash hash code of the key to place
+     * @return the index of an empty slot
+     */
+    private int findEmptySlot(int hash) {
+        int hashValue = hashValue(hash);
+        int step = probeStep(hash, capacity);
+        int index = hashValue;
+        int retry = 0;
+        do {
+            if (bucket[index] == null) {
+                return index;
+            }
+            retry++;
+            index = nextProbe(hashValue, index, step, hash, retry, capacity);
+        } while (retry < this.capacity);
+        return NO_SLOT;
+    }
+
+    /**
+     * Looks for a key in the old bucket array of an incremental rehash. Returns
+     * the index where it was found, or -1.
+     */
+    private int findInOldBucket(K key, int hash) {
+        int hashValue = hashValue(hash, oldCapacity, oldScale, oldShift);
+        int step = probeStep(hash, oldCapacity);
+        int index = hashValue;
+        int retry = 0;
+        do {
+            HashEntry<K, V> e = oldBucket[index];
+            if (e == null) {
+                return -1;
+            } else if (e != AVAILABLE && e.hash == hash && key.equals(e.key)) {
+                return index;
+            }
+            retry++;
+            index = nextProbe(hashValue, index, step, hash, retry, oldCapacity);
+        } while (retry < oldCapacity);
+        return -1;
+    }
+
+    /**
+     * Returns the number of buckets a lookup of the key inspects in the current
+     * bucket array: the position of the key in its probe sequence plus one if it
+     * is in the map, or the number of buckets visited until an empty one
+     * otherwise. Meant for diagnostics and benchmarks.
+     *
+     * @param key the key we are looking for
+     * @return the probe length, at least 1
+     */
+    public int probeLength(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int hashValue = hashValue(hash);
+        int step = probeStep(hash, capacity);
+        int index = hashValue;
+        int probes = 0;
+        while (probes < capacity) {
+            HashEntry<K, V> e = bucket[index];
+            probes++;
+            if (e == null || (e != AVAILABLE && e.hash == hash && key.equals(e.key))) {
+                break;
+            }
+            index = nextProbe(hashValue, index, step, hash, probes, capacity);
+        }
+        return probes;
+    }
+
+    /**
+     * Returns whether a value returned by {@link #findEntry(Object) findEntry} means
+     * that the key was found.
+     */
+    protected static boolean isFound(int i) {
+        return i >= 0;
+    }
+
+    /**
+     * Decodes the bucket index of a value returned by {@link #findEntry(Object) findEntry}.
+     * It must not be called with {@link #NO_SLOT}.
+     */
+    protected static int indexOf(int i) {
+        return (i >= 0) ? i : -(i + 1);
     }
 
     @Override
     public V get(K key) throws IllegalStateException {
-        HashEntryIndex i = findEntry(key); // helper method for finding a key
-        if (!i.found) {
+        int i = findEntry(key); // helper method for finding a key
+        if (!isFound(i)) {
+            if (oldBucket != null) { // the key may not have been migrated yet
+                int j = findInOldBucket(key, key.hashCode());
+                return (j < 0) ? null : oldBucket[j].getValue();
+            }
             return null; // there is no value for this key, so return null
         }
-        return bucket[i.index].getValue(); // return the found value in this case
+        return bucket[i].getValue(); // return the found value in this case
     }
 
     @Override
     public V put(K key, V value) throws IllegalStateException {
-        HashEntryIndex i = findEntry(key); // find the appropriate spot for this entry
-        if (i.found) { // this key has a previous value
-            return bucket[i.index].setValue(value); // set new value
+        checkKey(key);
+        int hash = key.hashCode();
+        if (oldBucket != null) {
+            migrate(MIGRATION_STEP);
         }
-        if (n >= capacity / 2) {
-            rehash(); // rehash to keep the load factor <= 0.5
-            i = findEntry(key); // find again the appropriate spot for this entry
+        int i = findEntry(key, hash); // find the appropriate spot for this entry
+        if (isFound(i)) { // this key has a previous value
+            return bucket[i].setValue(value); // set new value
         }
-        bucket[i.index] = new HashEntry<>(key, value); // convert to proper entry
-        n++;
+        if (oldBucket != null) {
+            int j = findInOldBucket(key, hash);
+            if (j >= 0) {
+                return oldBucket[j].setValue(value); // it will be moved later with its new value
+            }
+        }
+        while (n >= capacity / 2 || i == NO_SLOT) {
+            rehash(); // rehash to keep the load factor <= 0.5 (or to find a free slot)
+            i = findEntry(key, hash); // find again the appropriate spot for this entry
+        }
+        addEntry(indexOf(i), key, value, hash);
         return null; // there was no previous value
     }
 
+    /**
+     * Copies all the entries of the given map. The table is resized once for
+     * the final number of entries, so no load factor check is done per entry.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) throws IllegalStateException {
+        finishMigration();
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            K key = e.getKey();
+            checkKey(key);
+            int hash = key.hashCode();
+            int i = findEntry(key, hash);
+            if (isFound(i)) {
+                bucket[i].setValue(e.getValue());
+                continue;
+            }
+            while (i == NO_SLOT) {
+                rehash(capacity * 2); // at once, the lookups above only check the current array
+                i = findEntry(key, hash);
+            }
+            addEntry(indexOf(i), key, e.getValue(), hash);
+        }
+    }
+
+    /**
+     * Stores a new entry in a free or AVAILABLE bucket.
+     */
+    private void addEntry(int index, K key, V value, int hash) {
+        if (bucket[index] == AVAILABLE) {
+            tombstones--; // reusing a deactivated bucket
+        }
+        bucket[index] = new HashEntry<>(key, value, hash); // convert to proper entry
+        n++;
+    }
+
     @Override
     public V remove(K key) throws IllegalStateException {
-        HashEntryIndex i = findEntry(key); // find this key first
-        if (!i.found) {
+        checkKey(key);
+        if (oldBucket != null) {
+            migrate(MIGRATION_STEP);
+            if (oldBucket != null) {
+                int j = findInOldBucket(key, key.hashCode());
+                if (j >= 0) {
+                    V toReturn = oldBucket[j].getValue();
+                    oldBucket[j] = (HashEntry<K, V>) AVAILABLE; // keeps the probe sequences of the old array
+                    n--;
+                    return toReturn;
+                }
+            }
+        }
+        int i = findEntry(key); // find this key first
+        if (!isFound(i)) {
             return null; // nothing to remove
         }
-        V toReturn = bucket[i.index].getValue();
-        bucket[i.index] = (HashEntry<K, V>) AVAILABLE; // mark this slot as reactivated
+        V toReturn = bucket[i].getValue();
+        bucket[i] = (HashEntry<K, V>) AVAILABLE; // mark this slot as reactivated
         n--;
+        tombstones++;
+        if (oldBucket != null) {
+            return toReturn; // the table is being resized, the checks below wait until it is done
+        }
+        if (n < capacity / 8 && capacity / 2 >= minCapacity) {
+            rehash(capacity / 2); // shrink, it also clears the AVAILABLE markers
+        } else if (n + tombstones > capacity - capacity / 4) {
+            purgeAvailable(); // less than a quarter of the buckets are still empty
+        }
         return toReturn;
     }
 
     @Override
     public Iterator<Entry<K, V>> iterator() {
-        return new HashTableMapIterator<>(this.bucket, this.AVAILABLE, this.n);
+        return new HashTableMapIterator<>(this.bucket, this.oldBucket, this.AVAILABLE, this.n);
     }
 
     @Override
     public Iterable<K> keys() {
-        return () -> new HashTableMapKeyIterator<>(new HashTableMapIterator<>(bucket, AVAILABLE, n));
+        return () -> new HashTableMapKeyIterator<>(new HashTableMapIterator<>(bucket, oldBucket, AVAILABLE, n));
     }
 
     @Override
     public Iterable<V> values() {
-        return () -> new HashTableMapValueIterator<>(new HashTableMapIterator<>(bucket, AVAILABLE, n));
+        return () -> new HashTableMapValueIterator<>(new HashTableMapIterator<>(bucket, oldBucket, AVAILABLE, n));
     }
 
     @Override
     public Iterable<Entry<K, V>> entries() {
-        return () -> new HashTableMapIterator<>(bucket, AVAILABLE, n);
+        return () -> new HashTableMapIterator<>(bucket, oldBucket, AVAILABLE, n);
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        forEachEntry(bucket, action);
+        if (oldBucket != null) {
+            forEachEntry(oldBucket, action);
+        }
+    }
+
+    private void forEachEntry(HashEntry<K, V>[] array, BiConsumer<? super K, ? super V> action) {
+        for (HashEntry<K, V> e : array) {
+            if ((e != null) && (e != AVAILABLE)) {
+                action.accept(e.key, e.value);
+            }
+        }
+    }
+
+    @Override
+    public Cursor<K, V> cursor() {
+        return new HashTableMapCursor();
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        int fence = bucket.length + ((oldBucket == null) ? 0 : oldBucket.length);
+        return new HashTableMapSpliterator<>(bucket, oldBucket, AVAILABLE, 0, fence, n,
+                Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
     }
 
     /**
@@ -360,41 +773,365 @@ abstract public class AbstractHashTableMap<K, V> implements Map<K, V> {
      * @return hash value
      */
     protected int hashValue(K key) {
-        return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % capacity);
+        return hashValue(key.hashCode());
     }
 
     /**
-     * Doubles the size of the hash table and rehashes all the entries.
+     * Hash function applying MAD method to a hash code. In power-of-two mode the
+     * hash code is multiplied by a random odd number, the random shift is added
+     * and the high half is folded into the low half before masking.
+     *
+     * @param hash hash code of a key
+     * @return hash value
+     */
+    protected int hashValue(int hash) {
+        return hashValue(hash, capacity, scale, shift);
+    }
+
+    private int hashValue(int hash, int capacity, long scale, long shift) {
+        if (powerOfTwo) {
+            int h = hash * (int) scale + (int) shift;
+            return (h ^ (h >>> 16)) & (capacity - 1);
+        }
+        return (int) ((Math.abs(hash * scale + shift) % prime) % capacity);
+    }
+
+    /**
+     * Returns the bucket index reached by adding an offset to a hash value.
+     *
+     * @param hashValue initial index of the key
+     * @param offset    offset of the current probe
+     * @return an index in the bucket array
+     */
+    protected int probeIndex(int hashValue, int offset) {
+        return probeIndex(hashValue, offset, capacity);
+    }
+
+    private int probeIndex(int hashValue, int offset, int capacity) {
+        if (powerOfTwo) {
+            return (hashValue + offset) & (capacity - 1);
+        }
+        return (hashValue + offset) % capacity;
+    }
+
+    /**
+     * Chooses new random scale and shift factors for the hash function. It is
+     * called right after the bucket array is replaced, so it also publishes the
+     * pair for the statistics.
+     */
+    protected void randomizeHash() {
+        Random rand = new Random();
+        if (powerOfTwo) {
+            scale = rand.nextInt() | 1; // odd, so the multiplication is a bijection
+            shift = rand.nextInt();
+        } else {
+            scale = rand.nextInt(prime - 1) + 1;
+            shift = rand.nextInt(prime);
+        }
+        layout = new Layout<>(bucket, scale, shift);
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to cap.
+     */
+    protected static int powerOfTwoAtLeast(int cap) {
+        return (cap <= 1) ? 1 : Integer.highestOneBit(cap - 1) << 1;
+    }
+
+    /**
+     * Creates an empty bucket array of the given length.
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T, U> HashEntry<T, U>[] newBucketArray(int length) {
+        return (HashEntry<T, U>[]) new HashEntry<?, ?>[length]; // safe cast
+    }
+
+    /**
+     * Returns the capacity actually used when a given one is requested. It is
+     * rounded up to a power of two in power-of-two mode and kept as is otherwise.
+     * It is also called from the constructor, so overrides can't use the state
+     * of subclasses.
+     *
+     * @param cap requested capacity
+     * @return the capacity of the bucket array
+     */
+    protected int adjustCapacity(int cap) {
+        return powerOfTwo ? powerOfTwoAtLeast(cap) : cap;
+    }
+
+    /**
+     * Returns the smallest capacity that holds the given number of entries
+     * without exceeding the maximum load factor.
+     */
+    protected int capacityFor(int entries) {
+        return Math.max(2 * entries, 2);
+    }
+
+    /**
+     * Grows the bucket array, if needed, so that it holds the given number of
+     * entries without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        int needed = capacityFor(expectedSize);
+        if (needed > capacity) {
+            rehash(needed);
+        }
+    }
+
+    /**
+     * Shrinks the bucket array to the smallest capacity that keeps the load
+     * factor less than or equal to the maximum, regardless of the initial capacity.
+     */
+    public void trimToSize() {
+        rehash(capacityFor(n));
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled) {
+        if (!enabled) {
+            stats = null;
+        } else if (stats == null) {
+            stats = new StatsRecorder();
+        }
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * {@inheritDoc} While an incremental rehash is in progress, the histogram
+     * only covers the entries already in the new bucket array.
+     */
+    @Override
+    public HashTableStats getStatistics() {
+        return new HashTableStats(n, capacity, tombstones, stats, chainLengths());
+    }
+
+    /**
+     * Counts a lookup for the statistics, for subclasses with their own probe loop.
+     */
+    void recordLookup(int probes) {
+        if (stats != null) {
+            stats.lookup(probes);
+        }
+    }
+
+    /**
+     * Counts a rehash that started at the given System.nanoTime().
+     */
+    void recordRehash(long start) {
+        if (stats != null) {
+            stats.recordRehash(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the histogram of the number of probes needed to reach every entry.
+     * The bucket array and its hash factors are read at once from the published
+     * layout, so a concurrent change can make it inaccurate, but every entry is
+     * still probed with the factors it was placed with.
+     */
+    private int[] chainLengths() {
+        Layout<K, V> l = layout;
+        HashEntry<K, V>[] b = l.bucket;
+        int cap = b.length;
+        long sc = l.scale;
+        long sh = l.shift;
+        int[] counts = new int[1];
+        int longest = 0;
+        for (int slot = 0; slot < cap; slot++) {
+            HashEntry<K, V> e = b[slot];
+            if ((e == null) || (e == AVAILABLE)) {
+                continue;
+            }
+            int hashValue = hashValue(e.hash, cap, sc, sh);
+            int step = probeStep(e.hash, cap);
+            int index = hashValue;
+            int probes = 1;
+            while (index != slot && probes < cap) {
+                index = nextProbe(hashValue, index, step, e.hash, probes, cap);
+                probes++;
+            }
+            if (probes >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(probes + 1, 2 * counts.length));
+            }
+            counts[probes]++;
+            longest = Math.max(longest, probes);
+        }
+        return Arrays.copyOf(counts, longest + 1);
+    }
+
+    /**
+     * Enables or disables incremental rehash. Disabling it finishes any
+     * incremental rehash in progress.
+     *
+     * @param incremental if true, growing the table moves the entries a few
+     *                    at a time on the following puts and removes
+     */
+    public void setIncrementalRehash(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            finishMigration();
+        }
+    }
+
+    /**
+     * Doubles the size of the hash table and rehashes all the entries, or
+     * starts doing it incrementally if incremental rehash is enabled.
      */
     protected void rehash() {
         // new bucket is twice as big
-        rehash(capacity * 2);
+        if (incremental) {
+            finishMigration(); // the previous resize has to be over before a new one
+            startMigration(capacity * 2);
+        } else {
+            rehash(capacity * 2);
+        }
+    }
+
+    /**
+     * Replaces the bucket array by an empty one with the given capacity and a
+     * new hash function. The old array is drained by {@link #migrate(int)}.
+     */
+    private void startMigration(int newCapacity) {
+        newCapacity = adjustCapacity(newCapacity);
+        long start = System.nanoTime();
+        oldBucket = bucket;
+        oldCapacity = capacity;
+        oldScale = scale;
+        oldShift = shift;
+        migrated = 0;
+        capacity = newCapacity;
+        bucket = newBucketArray(capacity);
+        tombstones = 0; // the old markers are not migrated
+        randomizeHash();
+        recordRehash(start); // the migration itself is spread over the next operations
+    }
+
+    /**
+     * Moves the entries of the next slots of the old bucket array to the
+     * current one. Moved slots are marked AVAILABLE, so the probe sequences of
+     * the entries still in the old array are not broken.
+     *
+     * @param slots number of slots of the old array to process
+     */
+    @SuppressWarnings("unchecked")
+    private void migrate(int slots) {
+        int end = Math.min(migrated + slots, oldCapacity);
+        for (; migrated < end; migrated++) {
+            HashEntry<K, V> e = oldBucket[migrated];
+            if (e != null && e != AVAILABLE) {
+                int j = findEmptySlot(e.hash);
+                if (j == NO_SLOT) { // the probe sequence can't place it, grow at once
+                    foldOldBucket();
+                    return;
+                }
+                bucket[j] = e;
+                oldBucket[migrated] = (HashEntry<K, V>) AVAILABLE;
+            }
+        }
+        if (migrated == oldCapacity) {
+            oldBucket = null;
+        }
+    }
+
+    /**
+     * Completes an incremental rehash in progress, if any.
+     */
+    private void finishMigration() {
+        if (oldBucket != null) {
+            migrate(oldCapacity);
+        }
+    }
+
+    /**
+     * Moves the entries of both bucket arrays into a new one of twice the
+     * current capacity, at once.
+     */
+    private void foldOldBucket() {
+        HashEntry<K, V>[] live = newBucketArray(n);
+        int j = 0;
+        for (int k = 0; k < 2; k++) {
+            HashEntry<K, V>[] array = (k == 0) ? bucket : oldBucket;
+            for (HashEntry<K, V> e : array) {
+                if ((e != null) && (e != AVAILABLE)) {
+                    live[j++] = e;
+                }
+            }
+        }
+        oldBucket = null;
+        int newCapacity = capacity * 2;
+        bucket = live; // rehash only walks the array, the hash function doesn't matter
+        capacity = live.length;
+        rehash(newCapacity);
     }
 
     /**
      * Changes the size of the hash table and rehashes all the entries.
      */
     protected void rehash(int newCapacity) {
+        finishMigration();
+        newCapacity = adjustCapacity(newCapacity);
         // Prevent rehashing when decreasing the capacity
         // and the load factor constrain is not met
         if (newCapacity < 2 * this.size()) {
             return;
         }
 
+        long start = System.nanoTime();
         capacity = newCapacity;
         HashEntry<K, V>[] old = bucket;
-        bucket = (HashEntry<K, V>[]) new HashEntry[capacity];
-        Random rand = new Random();
-        // new hash scaling factor
-        scale = rand.nextInt(prime - 1) + 1;
-        // new hash shifting factor
-        shift = rand.nextInt(prime);
+        bucket = newBucketArray(capacity);
+        tombstones = 0;
+        randomizeHash(); // new hash scaling and shifting factors
         for (HashEntry<K, V> e : old) {
             if ((e != null) && (e != AVAILABLE)) { // a valid entry
-                int j = findEntry(e.getKey()).index;
+                int j = findEmptySlot(e.hash); // keys are unique, no need to compare them
+                if (j == NO_SLOT) { // the probe sequence can't place every entry, try a bigger table
+                    bucket = old;
+                    capacity = old.length;
+                    rehash(newCapacity * 2);
+                    return;
+                }
                 bucket[j] = e;
             }
         }
+        recordRehash(start);
+    }
+
+    /**
+     * Removes every AVAILABLE marker from the table. The live entries are
+     * reinserted into the same bucket array with the same hash function.
+     */
+    protected void purgeAvailable() {
+        finishMigration();
+        long start = System.nanoTime();
+        HashEntry<K, V>[] live = newBucketArray(n);
+        int j = 0;
+        for (int k = 0; k < capacity; k++) {
+            HashEntry<K, V> e = bucket[k];
+            if ((e != null) && (e != AVAILABLE)) {
+                live[j++] = e;
+            }
+            bucket[k] = null;
+        }
+        tombstones = 0;
+        for (HashEntry<K, V> e : live) {
+            int slot = findEmptySlot(e.hash);
+            if (slot == NO_SLOT) { // the probe sequence can't reach a free slot, grow instead
+                int oldCapacity = capacity;
+                bucket = live;
+                capacity = live.length;
+                rehash(oldCapacity * 2);
+                return;
+            }
+            bucket[slot] = e;
+        }
+        recordRehash(start);
     }
 
 }
@@ -0,0 +1,424 @@
+package material.maps;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Open addressing hash table specialized for primitive keys. The subclasses
+ * keep the keys in a plain array of their primitive type and run the probe
+ * loop and the rehash over it, so lookups never leave that type. This class
+ * keeps the parallel array of values, the bookkeeping of entries and
+ * tombstones and the iteration, where the keys are read widened to long. No
+ * entry objects are created and keys are never boxed when the primitive
+ * methods of the subclasses are used.
+ *
+ * <p>The key 0 marks an empty bucket. The entry of the key 0 itself, if any, is
+ * kept apart from the arrays. A removed entry leaves its bucket with key 0 and
+ * a TOMBSTONE value, which lookups skip and insertions reuse. The probe sequence
+ * is given by a {@link ProbingStrategy}, the capacity is always a power of two
+ * and the load factor is kept less than or equal to 0.5, as in
+ * {@link AbstractHashTableMap}.</p>
+ *
+ * @param <K> The boxed key type
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public abstract class AbstractPrimitiveHashTableMap<K, V> implements Map<K, V> {
+
+    static final int FREE = 0; // key of the empty buckets
+    static final Object TOMBSTONE = new Object(); // value of the removed entries
+    static final int NO_SLOT = Integer.MIN_VALUE; // returned by the probe loops when no bucket is available
+
+    /**
+     * Walks the key 0 entry and then the live buckets of the arrays in use when
+     * the iterator was created.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private final Object keyArray = keyArray();
+        private final Object[] valueArray = values;
+        private final int length = valueArray.length;
+        private boolean zeroPending = hasZeroKey;
+        private int index = -1;
+
+        SlotIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                index++;
+            } while (index < length && keyAt(keyArray, index) == FREE);
+        }
+
+        abstract T element(long key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return zeroPending || index < length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (zeroPending) {
+                zeroPending = false;
+                return element(FREE, zeroValue);
+            }
+            if (index < length) {
+                T toReturn = element(keyAt(keyArray, index), (V) valueArray[index]);
+                advance();
+                return toReturn;
+            }
+            throw new IllegalStateException("The map has not more elements");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Splits the bucket array by range. The position right after the last
+     * bucket stands for the entry of the key 0.
+     */
+    private class SlotSpliterator extends BucketSpliterator<Entry<K, V>> {
+
+        private final Object keyArray;
+        private final Object[] valueArray;
+        private final V zero;
+
+        SlotSpliterator(Object keyArray, Object[] valueArray, V zero,
+                        int origin, int fence, long est, int characteristics) {
+            super(origin, fence, est, characteristics);
+            this.keyArray = keyArray;
+            this.valueArray = valueArray;
+            this.zero = zero;
+        }
+
+        @Override
+        BucketSpliterator<Entry<K, V>> split(int origin, int fence, long est, int characteristics) {
+            return new SlotSpliterator(keyArray, valueArray, zero, origin, fence, est, characteristics);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            while (index < fence) {
+                int i = index++;
+                if (i == valueArray.length) {
+                    action.accept(newEntry(FREE, zero));
+                    return true;
+                }
+                long key = keyAt(keyArray, i);
+                if (key != FREE) {
+                    action.accept(newEntry(key, (V) valueArray[i]));
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Cursor over the key 0 entry and then the live buckets of the arrays in
+     * use when it was created. The subclasses add the accessor of the key as
+     * their primitive type on top of rawKey.
+     */
+    abstract class SlotCursor implements Cursor<K, V> {
+
+        private final Object keyArray = keyArray();
+        private final Object[] valueArray = values;
+        private final int length = valueArray.length;
+        private final boolean hasZero = hasZeroKey;
+        private final V zero = zeroValue;
+        private int index = -2; // -1 is the entry of the key 0
+
+        @Override
+        public boolean advance() {
+            if (index == -2) {
+                index = -1;
+                if (hasZero) {
+                    return true;
+                }
+            }
+            do {
+                index++;
+            } while (index < length && keyAt(keyArray, index) == FREE);
+            if (index > length) {
+                index = length;
+            }
+            return index < length;
+        }
+
+        long rawKey() {
+            checkPosition();
+            return (index < 0) ? FREE : keyAt(keyArray, index);
+        }
+
+        @Override
+        public K key() {
+            return boxKey(rawKey());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V value() {
+            checkPosition();
+            return (index < 0) ? zero : (V) valueArray[index];
+        }
+
+        private void checkPosition() {
+            if (index == -2 || index >= length) {
+                throw new IllegalStateException("The cursor is not on an entry.");
+            }
+        }
+    }
+
+    final ProbingStrategy probing;
+    Object[] values; // read by the probe loops of the subclasses
+    int capacity;
+    private int n; // number of entries in the arrays
+    private int tombstones;
+    private final int minCapacity;
+    private int scale; // random odd multiplier of the hash function
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    /**
+     * Creates a hash table with the given capacity and probe sequence. The
+     * subclasses create their key array of the resulting capacity.
+     *
+     * @param cap     initial capacity (rounded up to a power of two)
+     * @param probing probe sequence used to resolve collisions
+     */
+    AbstractPrimitiveHashTableMap(int cap, ProbingStrategy probing) {
+        this.probing = probing;
+        this.capacity = AbstractHashTableMap.powerOfTwoAtLeast(Math.max(cap, 2));
+        this.minCapacity = capacity;
+        this.values = new Object[capacity];
+        this.scale = new Random().nextInt() | 1;
+    }
+
+    /**
+     * Returns the key array in use, for the iterators.
+     */
+    abstract Object keyArray();
+
+    /**
+     * Returns the key at the given bucket of a key array, widened to long.
+     */
+    abstract long keyAt(Object keyArray, int index);
+
+    abstract K boxKey(long key);
+
+    abstract Entry<K, V> newEntry(long key, V value);
+
+    /**
+     * Replaces the key array by an empty one of the current capacity and
+     * places in it the keys of the old one, copying their values from
+     * oldValues into the current value array. If the probe sequence can't place
+     * every key, the old key array is restored and false is returned.
+     */
+    abstract boolean rehashKeys(Object[] oldValues);
+
+    @Override
+    public int size() {
+        return hasZeroKey ? n + 1 : n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the first bucket of the probe sequence of a hash code.
+     */
+    final int hashValue(int hash) {
+        int h = hash * scale;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    final V replaceValue(int index, V value) {
+        V toReturn = valueAt(index);
+        values[index] = value;
+        return toReturn;
+    }
+
+    final boolean hasZeroKey() {
+        return hasZeroKey;
+    }
+
+    final V zeroValue() {
+        return zeroValue;
+    }
+
+    final V putZero(V value) {
+        V toReturn = zeroValue;
+        zeroValue = value;
+        hasZeroKey = true;
+        return toReturn;
+    }
+
+    final V removeZero() {
+        V toReturn = zeroValue;
+        zeroValue = null;
+        hasZeroKey = false;
+        return toReturn;
+    }
+
+    /**
+     * Returns whether the arrays have to grow before a new key is placed at
+     * the slot returned by a probe loop.
+     */
+    final boolean mustGrow(int slot) {
+        return n >= capacity / 2 || slot == NO_SLOT;
+    }
+
+    /**
+     * Stores the value of a new entry whose key was just placed at index.
+     */
+    final void insertValue(int index, V value) {
+        if (values[index] == TOMBSTONE) {
+            tombstones--;
+        }
+        values[index] = value;
+        n++;
+    }
+
+    /**
+     * Leaves a tombstone at index, whose key was just cleared, and returns the
+     * removed value. The arrays may be rehashed afterwards.
+     */
+    final V removeValueAt(int index) {
+        V toReturn = valueAt(index);
+        values[index] = TOMBSTONE;
+        n--;
+        tombstones++;
+        if (n < capacity / 8 && capacity / 2 >= minCapacity) {
+            rehash(capacity / 2);
+        } else if (n + tombstones > capacity - capacity / 4) {
+            rehash(capacity); // same capacity, just drop the tombstones
+        }
+        return toReturn;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new SlotIterator<Entry<K, V>>() {
+            @Override
+            Entry<K, V> element(long key, V value) {
+                return newEntry(key, value);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new SlotIterator<K>() {
+            @Override
+            K element(long key, V value) {
+                return boxKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new SlotIterator<V>() {
+            @Override
+            V element(long key, V value) {
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return this::iterator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        if (hasZeroKey) {
+            action.accept(boxKey(FREE), zeroValue);
+        }
+        Object keyArray = keyArray();
+        for (int i = 0; i < values.length; i++) {
+            long key = keyAt(keyArray, i);
+            if (key != FREE) {
+                action.accept(boxKey(key), (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new SlotSpliterator(keyArray(), values, zeroValue, 0, values.length + (hasZeroKey ? 1 : 0),
+                size(), Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Determines whether a key is valid.
+     *
+     * @param k Key
+     */
+    protected void checkKey(K k) {
+        if (k == null) {
+            throw new IllegalStateException("Invalid key: null.");
+        }
+    }
+
+    /**
+     * Grows the arrays, if needed, so that they hold the given number of entries
+     * without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (2 * expectedSize > capacity) {
+            rehash(2 * expectedSize);
+        }
+    }
+
+    /**
+     * Shrinks the arrays to the smallest capacity that keeps the load factor
+     * less than or equal to 0.5, regardless of the initial capacity.
+     */
+    public void trimToSize() {
+        rehash(Math.max(2 * n, 2));
+    }
+
+    /**
+     * Moves the entries to new arrays of the given capacity, rounded up to a
+     * power of two, with a new hash function. Tombstones are dropped.
+     */
+    final void rehash(int newCapacity) {
+        newCapacity = AbstractHashTableMap.powerOfTwoAtLeast(newCapacity);
+        if (newCapacity < 2 * n) {
+            return;
+        }
+        Object[] oldValues = values;
+        capacity = newCapacity;
+        values = new Object[capacity];
+        tombstones = 0;
+        scale = new Random().nextInt() | 1;
+        if (!rehashKeys(oldValues)) { // the probe sequence can't place every key, try a bigger table
+            values = oldValues;
+            capacity = oldValues.length;
+            rehash(newCapacity * 2);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package material.maps;
+
+import java.util.Spliterator;
+
+/**
+ * Base of the spliterators of the hash maps. A spliterator covers a range of
+ * positions of the bucket array and splits it in halves, so parallel streams
+ * can walk different parts of the table at the same time.
+ *
+ * <p>Unless the subclass knows the exact number of entries in every range
+ * (SUBSIZED), only the spliterator of the whole map is SIZED: after a split,
+ * the size of each half is estimated as half of the previous estimate.</p>
+ *
+ * @param <T> Type of the elements
+ * @author vlt23
+ */
+abstract class BucketSpliterator<T> implements Spliterator<T> {
+
+    protected int index; // next position of the range
+    protected final int fence; // end of the range, exclusive
+    private long est; // estimated number of elements
+    private int characteristics;
+
+    /**
+     * @param origin          first position of the range
+     * @param fence           end of the range, exclusive
+     * @param est             number of elements in the range, or an estimate
+     * @param characteristics characteristics of the spliterator
+     */
+    BucketSpliterator(int origin, int fence, long est, int characteristics) {
+        this.index = origin;
+        this.fence = fence;
+        this.est = est;
+        this.characteristics = characteristics;
+    }
+
+    /**
+     * Creates a spliterator of the same kind for another range.
+     */
+    abstract BucketSpliterator<T> split(int origin, int fence, long est, int characteristics);
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        if ((characteristics & SUBSIZED) != 0) {
+            BucketSpliterator<T> prefix = split(index, mid, mid - index, characteristics);
+            index = mid;
+            est = fence - mid;
+            return prefix;
+        }
+        characteristics &= ~SIZED;
+        est >>>= 1;
+        BucketSpliterator<T> prefix = split(index, mid, est, characteristics);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return ((characteristics & SUBSIZED) != 0) ? fence - index : est;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
@@ -0,0 +1,82 @@
+package material.maps;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys or values to bytes and back, so that they can be stored
+ * outside the Java heap by {@link OffHeapHashTableMap}. Equal objects must be
+ * encoded to the same bytes, since the stored keys are compared byte by byte.
+ *
+ * @param <T> Type of the encoded objects
+ * @author vlt23
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes an object at the position of the buffer.
+     *
+     * @param value  the object to encode
+     * @param buffer buffer to write to
+     * @throws BufferOverflowException if the buffer has not room enough, the
+     *                                 map then retries with a bigger buffer
+     */
+    void encode(T value, ByteBuffer buffer) throws BufferOverflowException;
+
+    /**
+     * Reads an object from the bytes between the position and the limit of the
+     * buffer.
+     *
+     * @param buffer buffer to read from
+     * @return the decoded object
+     */
+    T decode(ByteBuffer buffer);
+
+    /**
+     * Strings encoded in UTF-8.
+     */
+    Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void encode(String value, ByteBuffer buffer) {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Integers encoded in 4 bytes.
+     */
+    Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public void encode(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    /**
+     * Longs encoded in 8 bytes.
+     */
+    Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public void encode(Long value, ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public Long decode(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+    };
+}
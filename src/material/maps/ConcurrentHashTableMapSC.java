@@ -0,0 +1,463 @@
+package material.maps;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Thread safe separate chaining hash table with lock striping.
+ *
+ * <p>The buckets are split among a fixed number of stripes, each one guarded by
+ * its own lock, so writers only contend when they touch the same stripe.
+ * Readers never lock: chains are made of immutable nodes (only the value can
+ * change, and it is volatile), a put links a new node at the head of the chain
+ * and a remove copies the nodes in front of the removed one. A reader always
+ * walks a consistent chain, although it may miss a concurrent change.</p>
+ *
+ * <p>The bucket array doubles when the load factor of the table reaches 0.5.
+ * Writers only sum the counts of the stripes every few inserts, so the load
+ * may exceed 0.5 by up to 1/8 until one of them does. The resize takes every
+ * stripe lock and copies the chains into a new array, so readers can keep
+ * using the old one in the meantime. Iterators are weakly
+ * consistent: they walk the array that was current when they were created, never
+ * throw because of concurrent changes and may or may not reflect them.</p>
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class ConcurrentHashTableMapSC<K, V> implements Map<K, V> {
+
+    private static final class Node<T, U> implements Entry<T, U> {
+
+        final T key;
+        final int hash;
+        volatile U value;
+        final Node<T, U> next;
+
+        Node(T key, int hash, U value, Node<T, U> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public T getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Lock of a stripe and number of entries in its buckets. The count is only
+     * written with the lock held.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile int count;
+        int inserts; // since the load of the table was last checked, guarded by lock
+    }
+
+    private static class ConcurrentHashTableMapIterator<T, U> implements Iterator<Entry<T, U>> {
+
+        private final AtomicReferenceArray<Node<T, U>> table;
+        private int index;
+        private Node<T, U> next;
+
+        public ConcurrentHashTableMapIterator(AtomicReferenceArray<Node<T, U>> table) {
+            this.table = table;
+            this.index = 0;
+            advance();
+        }
+
+        private void advance() {
+            if (next != null) {
+                next = next.next;
+            }
+            while (next == null && index < table.length()) {
+                next = table.get(index++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<T, U> next() {
+            if (hasNext()) {
+                Entry<T, U> toReturn = next;
+                advance();
+                return toReturn;
+            }
+            throw new IllegalStateException("The map has not more elements");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Splits the bucket array by range, with the same guarantees as the
+     * iterators.
+     */
+    private static class ConcurrentSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final AtomicReferenceArray<Node<T, U>> table;
+        private Node<T, U> next; // next node of the chain being walked
+
+        ConcurrentSpliterator(AtomicReferenceArray<Node<T, U>> table, int origin, int fence, long est) {
+            super(origin, fence, est, Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+            this.table = table;
+        }
+
+        @Override
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new ConcurrentSpliterator<>(table, origin, fence, est);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            while (next == null && index < fence) {
+                next = table.get(index++);
+            }
+            if (next == null) {
+                return false;
+            }
+            Node<T, U> e = next;
+            next = e.next;
+            action.accept(e);
+            return true;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private final Stripe[] stripes;
+    private final int scale; // odd multiplier of the hash function, fixed for the map lifetime
+    private volatile int checkInterval; // inserts of a stripe between two checks of the load
+
+    /**
+     * Creates a hash table with capacity 1024 and 16 stripes.
+     */
+    public ConcurrentHashTableMapSC() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and 16 stripes.
+     *
+     * @param cap initial capacity (rounded up to a power of two)
+     */
+    public ConcurrentHashTableMapSC(int cap) {
+        this(cap, 16);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and number of stripes. The
+     * number of stripes bounds how many writers can work at the same time.
+     *
+     * @param cap         initial capacity (rounded up to a power of two)
+     * @param concurrency number of stripes (rounded up to a power of two)
+     */
+    public ConcurrentHashTableMapSC(int cap, int concurrency) {
+        if (cap < 1 || concurrency < 1) {
+            throw new RuntimeException("Invalid capacity or concurrency level.");
+        }
+        int nStripes = powerOfTwoAtLeast(concurrency);
+        this.stripes = new Stripe[nStripes];
+        for (int i = 0; i < nStripes; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.table = new AtomicReferenceArray<>(Math.max(powerOfTwoAtLeast(cap), nStripes));
+        this.checkInterval = checkInterval(table.length());
+        this.scale = new Random().nextInt() | 1;
+    }
+
+    /**
+     * Number of inserts a stripe lets pass between two checks of the load of
+     * a table of the given length. Between checks every stripe can add that
+     * many entries, so the load factor stays below 0.5 + 1/8.
+     */
+    private int checkInterval(int length) {
+        return Math.max(1, length / (8 * stripes.length));
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        int p = 1;
+        while (p < n) {
+            p <<= 1;
+        }
+        return p;
+    }
+
+    /**
+     * Multiplicative hash of a hash code. The low bits select the bucket and,
+     * since the array is never smaller than the number of stripes, also the
+     * stripe, so a bucket belongs to the same stripe whatever the capacity.
+     */
+    private int spread(int hash) {
+        int h = hash * scale;
+        return h ^ (h >>> 16);
+    }
+
+    private Stripe stripeFor(int h) {
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    @Override
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            n += s.count;
+        }
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V get(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int h = spread(hash);
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (Node<K, V> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next) {
+            if (e.hash == hash && e.key.equals(key)) {
+                return e.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int h = spread(hash);
+        Stripe stripe = stripeFor(h);
+        AtomicReferenceArray<Node<K, V>> tab;
+        boolean check;
+        stripe.lock.lock();
+        try {
+            tab = table; // read with the lock held, a resize can't be running
+            int index = h & (tab.length() - 1);
+            Node<K, V> head = tab.get(index);
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    V toReturn = e.value;
+                    e.value = value;
+                    return toReturn;
+                }
+            }
+            tab.set(index, new Node<>(key, hash, value, head));
+            stripe.count++;
+            check = ++stripe.inserts >= checkInterval;
+            if (check) {
+                stripe.inserts = 0;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        // the load of the whole table, a single crowded stripe must not grow it;
+        // summing the stripes only every few inserts keeps writers off each other's counts
+        if (check && size() >= tab.length() / 2) {
+            rehash(tab);
+        }
+        return null;
+    }
+
+    @Override
+    public V remove(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int h = spread(hash);
+        Stripe stripe = stripeFor(h);
+        stripe.lock.lock();
+        try {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = h & (tab.length() - 1);
+            Node<K, V> head = tab.get(index);
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    // the nodes after e are shared, the ones before it are copied
+                    Node<K, V> newHead = e.next;
+                    for (Node<K, V> p = head; p != e; p = p.next) {
+                        newHead = new Node<>(p.key, p.hash, p.value, newHead);
+                    }
+                    tab.set(index, newHead);
+                    stripe.count--;
+                    return e.value;
+                }
+            }
+            return null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new ConcurrentHashTableMapIterator<>(table);
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new Iterator<K>() {
+            private final Iterator<Entry<K, V>> it = iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public K next() {
+                return it.next().getKey();
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new Iterator<V>() {
+            private final Iterator<Entry<K, V>> it = iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public V next() {
+                return it.next().getValue();
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return this::iterator;
+    }
+
+    /**
+     * Walks the bucket array that is current when the call starts, with the
+     * same guarantees as the iterators.
+     */
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> e = tab.get(i); e != null; e = e.next) {
+                action.accept(e.key, e.value);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        return new ConcurrentSpliterator<>(tab, 0, tab.length(), size());
+    }
+
+    /**
+     * Returns a weakly consistent cursor, like the iterators. The map may be
+     * modified while it is in use.
+     */
+    @Override
+    public Cursor<K, V> cursor() {
+        return new Cursor<K, V>() {
+            private final AtomicReferenceArray<Node<K, V>> tab = table;
+            private int index;
+            private Node<K, V> current;
+
+            @Override
+            public boolean advance() {
+                if (current != null) {
+                    current = current.next;
+                }
+                while (current == null && index < tab.length()) {
+                    current = tab.get(index++);
+                }
+                return current != null;
+            }
+
+            @Override
+            public K key() {
+                return node().key;
+            }
+
+            @Override
+            public V value() {
+                return node().value;
+            }
+
+            private Node<K, V> node() {
+                if (current == null) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Determines whether a key is valid.
+     *
+     * @param k Key
+     */
+    protected void checkKey(K k) {
+        if (k == null) {
+            throw new IllegalStateException("Invalid key: null.");
+        }
+    }
+
+    /**
+     * Doubles the bucket array, unless another thread already replaced the
+     * given one. Every stripe lock is held while the chains are copied.
+     */
+    private void rehash(AtomicReferenceArray<Node<K, V>> expected) {
+        for (Stripe s : stripes) {
+            s.lock.lock();
+        }
+        try {
+            AtomicReferenceArray<Node<K, V>> old = table;
+            if (old != expected) {
+                return; // somebody else resized it
+            }
+            int n = size(); // exact, no writer can run
+            int newCapacity = old.length() * 2;
+            while (n >= newCapacity / 2) { // inserts between checks may have overshot
+                newCapacity *= 2;
+            }
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newCapacity);
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<K, V> e = old.get(i); e != null; e = e.next) {
+                    int index = spread(e.hash) & (newCapacity - 1);
+                    newTable.set(index, new Node<>(e.key, e.hash, e.value, newTable.get(index)));
+                }
+            }
+            table = newTable;
+            checkInterval = checkInterval(newCapacity);
+        } finally {
+            for (Stripe s : stripes) {
+                s.lock.unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package material.maps;
+
+/**
+ * Walks the entries of a map without creating an object per entry. A cursor
+ * starts before the first entry: every call to {@link #advance()} moves it to
+ * the next one, and {@link #key()} and {@link #value()} read the entry it is on.
+ *
+ * <pre>
+ * Cursor&lt;K, V&gt; c = map.cursor();
+ * while (c.advance()) {
+ *     use(c.key(), c.value());
+ * }
+ * </pre>
+ *
+ * <p>The map must not be modified while the cursor is in use.</p>
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ * @author vlt23
+ */
+public interface Cursor<K, V> {
+
+    /**
+     * Moves the cursor to the next entry.
+     *
+     * @return false if there are no more entries
+     */
+    boolean advance();
+
+    /**
+     * Returns the key of the current entry.
+     *
+     * @throws IllegalStateException if the cursor is not on an entry
+     */
+    K key() throws IllegalStateException;
+
+    /**
+     * Returns the value of the current entry.
+     *
+     * @throws IllegalStateException if the cursor is not on an entry
+     */
+    V value() throws IllegalStateException;
+}
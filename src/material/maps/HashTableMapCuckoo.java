@@ -0,0 +1,588 @@
+package material.maps;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Bucketized cuckoo hash table. Every key has two candidate buckets of
+ * {@link #SLOTS} slots, chosen by two independent hash functions, and is always
+ * stored in one of them or in a small stash. A lookup inspects at most the two
+ * buckets and the stash, whatever the collision pattern, so its cost is bounded
+ * even in the worst case.
+ *
+ * <p>The hash functions are the power-of-two form of the MAD method used by
+ * {@link AbstractHashTableMap}: the hash code is multiplied by a random odd
+ * number, a random shift is added and the high half is folded into the low
+ * half before masking. Each function has its own scale and shift.</p>
+ *
+ * <p>When both buckets of a new key are full, an entry of one of them is
+ * evicted to its other bucket, which may evict another entry, and so on. If
+ * the chain of evictions is too long, the entry left without a slot goes to the
+ * stash. If the stash is full too, the table is rebuilt with new hash functions,
+ * and with twice the buckets if it is more than half full. The table grows when
+ * the load factor reaches 0.9 and is halved when it drops below 0.125, never
+ * below its initial capacity.</p>
+ *
+ * <p>Keys with the same hash code share both buckets. If there are more of them
+ * than the buckets and the stash can hold, no hash function can separate them
+ * and the stash grows, so lookups of those keys scan a longer stash.</p>
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class HashTableMapCuckoo<K, V> implements Map<K, V> {
+
+    /**
+     * Number of slots of every bucket.
+     */
+    public static final int SLOTS = 4;
+
+    private static final int STASH = 4; // initial capacity of the stash
+    private static final int MAX_KICKS = 500; // evictions tried before giving up on an insertion
+    private static final int MAX_ATTEMPTS = 4; // failed rebuilds before the stash grows
+    private static final double MAX_LOAD = 0.9;
+    private static final int NONE = -1;
+
+    private static final class CuckooEntry<T, U> implements Entry<T, U> {
+
+        private final T key;
+        private final U value;
+
+        CuckooEntry(T key, U value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public T getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + "," + value + ")";
+        }
+    }
+
+    /**
+     * Walks the slots and the stash as they were when the iterator was created.
+     */
+    private abstract class CuckooIterator<T> implements Iterator<T> {
+
+        private final Object[] keyArray = keys;
+        private final Object[] valueArray = values;
+        private final int end = slots + stashSize;
+        private int index = skip(keyArray, 0, end);
+
+        abstract T element(K key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return index < end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (hasNext()) {
+                T toReturn = element((K) keyArray[index], (V) valueArray[index]);
+                index = skip(keyArray, index + 1, end);
+                return toReturn;
+            }
+            throw new IllegalStateException("The map has not more elements");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    private static class CuckooSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final Object[] keyArray;
+        private final Object[] valueArray;
+
+        CuckooSpliterator(Object[] keyArray, Object[] valueArray, int origin, int fence, long est,
+                          int characteristics) {
+            super(origin, fence, est, characteristics);
+            this.keyArray = keyArray;
+            this.valueArray = valueArray;
+        }
+
+        @Override
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new CuckooSpliterator<>(keyArray, valueArray, origin, fence, est, characteristics);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            while (index < fence) {
+                int i = index++;
+                if (keyArray[i] != null) {
+                    action.accept(new CuckooEntry<>((T) keyArray[i], (U) valueArray[i]));
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private int n;
+    private int buckets; // number of buckets, a power of two
+    private int slots; // buckets * SLOTS, the stash starts here
+    private int threshold; // the table grows when it holds this many entries
+    private final int minBuckets;
+    private int scale1, shift1, scale2, shift2; // the two hash functions
+    private int stashSize; // entries in the stash
+    private int[] hashes; // cached key.hashCode() of every slot
+    private Object[] keys; // null in free slots
+    private Object[] values;
+    private final Random rand = new Random();
+
+    // entry left without a slot by the last failed insertion
+    private Object homelessKey;
+    private Object homelessValue;
+    private int homelessHash;
+
+    /**
+     * Creates a hash table with capacity 1024.
+     */
+    public HashTableMapCuckoo() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity.
+     *
+     * @param cap initial number of slots (rounded up to a power of two, at
+     *            least {@link #SLOTS})
+     */
+    public HashTableMapCuckoo(int cap) {
+        this.buckets = AbstractHashTableMap.powerOfTwoAtLeast((Math.max(cap, 1) + SLOTS - 1) / SLOTS);
+        this.minBuckets = buckets;
+        allocate(buckets, STASH);
+        randomizeHash();
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapCuckoo<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapCuckoo<>((int) Math.ceil(expectedSize / MAX_LOAD));
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    private void allocate(int numBuckets, int stashCapacity) {
+        buckets = numBuckets;
+        slots = numBuckets * SLOTS;
+        threshold = (int) (slots * MAX_LOAD);
+        stashSize = 0;
+        hashes = new int[slots + stashCapacity];
+        keys = new Object[slots + stashCapacity];
+        values = new Object[slots + stashCapacity];
+    }
+
+    private void randomizeHash() {
+        scale1 = rand.nextInt() | 1; // odd, so the multiplication is a bijection
+        shift1 = rand.nextInt();
+        scale2 = rand.nextInt() | 1;
+        shift2 = rand.nextInt();
+    }
+
+    /**
+     * Returns the first slot of the first bucket of a hash code.
+     */
+    private int bucket1(int hash) {
+        int h = hash * scale1 + shift1;
+        return ((h ^ (h >>> 16)) & (buckets - 1)) * SLOTS;
+    }
+
+    /**
+     * Returns the first slot of the second bucket of a hash code.
+     */
+    private int bucket2(int hash) {
+        int h = hash * scale2 + shift2;
+        return ((h ^ (h >>> 16)) & (buckets - 1)) * SLOTS;
+    }
+
+    private int findInBucket(Object key, int hash, int b) {
+        for (int i = b; i < b + SLOTS; i++) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the slot of a key, or {@link #NONE}.
+     */
+    private int findSlot(Object key, int hash) {
+        int i = findInBucket(key, hash, bucket1(hash));
+        if (i == NONE) {
+            i = findInBucket(key, hash, bucket2(hash));
+        }
+        for (int s = slots; i == NONE && s < slots + stashSize; s++) {
+            if (hashes[s] == hash && key.equals(keys[s])) {
+                i = s;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of places a lookup of the key inspects: 1 if it is in
+     * its first bucket, 2 if it is in the second one, or 3 if the stash has to
+     * be checked too. Meant for diagnostics and benchmarks.
+     *
+     * @param key the key we are looking for
+     * @return the probe length, between 1 and 3
+     */
+    public int probeLength(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        if (findInBucket(key, hash, bucket1(hash)) != NONE) {
+            return 1;
+        }
+        if (findInBucket(key, hash, bucket2(hash)) != NONE || stashSize == 0) {
+            return 2;
+        }
+        return 3;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        checkKey(key);
+        int i = findSlot(key, key.hashCode());
+        return (i == NONE) ? null : (V) values[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int i = findSlot(key, hash);
+        if (i != NONE) {
+            V toReturn = (V) values[i];
+            values[i] = value;
+            return toReturn;
+        }
+        if (n >= threshold) {
+            rehash(buckets * 2);
+        }
+        if (!insert(key, value, hash)) {
+            // the evictions already moved entries around, rebuild with whatever they left out
+            rebuild(n >= slots / 2 ? buckets * 2 : buckets, keys.length - slots, true);
+        }
+        n++;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) {
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Places an entry whose key is not in the table in one of its buckets,
+     * evicting other entries if needed, or in the stash. If there is no room
+     * for it, returns false and leaves the entry without a slot, which may be
+     * a different one, in the homeless fields.
+     */
+    private boolean insert(Object key, Object value, int hash) {
+        int b1 = bucket1(hash);
+        int b2 = bucket2(hash);
+        if (placeInBucket(key, value, hash, b1) || placeInBucket(key, value, hash, b2)) {
+            return true;
+        }
+        int b = rand.nextBoolean() ? b1 : b2;
+        for (int kicks = 0; kicks < MAX_KICKS; kicks++) {
+            int victim = b + rand.nextInt(SLOTS);
+            Object victimKey = keys[victim];
+            Object victimValue = values[victim];
+            int victimHash = hashes[victim];
+            keys[victim] = key;
+            values[victim] = value;
+            hashes[victim] = hash;
+            key = victimKey;
+            value = victimValue;
+            hash = victimHash;
+            int other = bucket1(hash);
+            b = (other == b) ? bucket2(hash) : other; // the evicted entry goes to its other bucket
+            if (placeInBucket(key, value, hash, b)) {
+                return true;
+            }
+        }
+        if (slots + stashSize < keys.length) {
+            setSlot(slots + stashSize++, key, value, hash);
+            return true;
+        }
+        homelessKey = key;
+        homelessValue = value;
+        homelessHash = hash;
+        return false;
+    }
+
+    private boolean placeInBucket(Object key, Object value, int hash, int b) {
+        for (int i = b; i < b + SLOTS; i++) {
+            if (keys[i] == null) {
+                setSlot(i, key, value, hash);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setSlot(int i, Object key, Object value, int hash) {
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int i = findSlot(key, hash);
+        if (i == NONE) {
+            return null;
+        }
+        V toReturn = (V) values[i];
+        n--;
+        if (i >= slots) {
+            int last = slots + --stashSize;
+            setSlot(i, keys[last], values[last], hashes[last]); // keep the stash packed
+            setSlot(last, null, null, 0);
+        } else {
+            setSlot(i, null, null, 0);
+            unstash(i - i % SLOTS);
+        }
+        if (n < slots / 8 && buckets / 2 >= minBuckets) {
+            rehash(buckets / 2);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Moves a stashed entry, if any belongs there, to a bucket that has just got
+     * a free slot.
+     */
+    private void unstash(int b) {
+        for (int s = slots; s < slots + stashSize; s++) {
+            int hash = hashes[s];
+            if (bucket1(hash) == b || bucket2(hash) == b) {
+                placeInBucket(keys[s], values[s], hash, b);
+                int last = slots + --stashSize;
+                setSlot(s, keys[last], values[last], hashes[last]);
+                setSlot(last, null, null, 0);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new CuckooIterator<Entry<K, V>>() {
+            @Override
+            Entry<K, V> element(K key, V value) {
+                return new CuckooEntry<>(key, value);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new CuckooIterator<K>() {
+            @Override
+            K element(K key, V value) {
+                return key;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new CuckooIterator<V>() {
+            @Override
+            V element(K key, V value) {
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return this::iterator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < slots + stashSize; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new CuckooSpliterator<>(keys, values, 0, slots + stashSize, n,
+                Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Cursor<K, V> cursor() {
+        return new Cursor<K, V>() {
+            private final Object[] keyArray = keys;
+            private final Object[] valueArray = values;
+            private final int end = slots + stashSize;
+            private int index = -1;
+
+            @Override
+            public boolean advance() {
+                if (index < end) {
+                    index = skip(keyArray, index + 1, end);
+                }
+                return index < end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public K key() {
+                checkPosition();
+                return (K) keyArray[index];
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V value() {
+                checkPosition();
+                return (V) valueArray[index];
+            }
+
+            private void checkPosition() {
+                if (index < 0 || index >= end) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the first position from i on that holds an entry, or end.
+     */
+    private static int skip(Object[] keyArray, int i, int end) {
+        while (i < end && keyArray[i] == null) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Determines whether a key is valid.
+     *
+     * @param k Key
+     */
+    protected void checkKey(K k) {
+        if (k == null) {
+            throw new IllegalStateException("Invalid key: null.");
+        }
+    }
+
+    /**
+     * Grows the table, if needed, so that it holds the given number of entries
+     * without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > threshold) {
+            rehash(AbstractHashTableMap.powerOfTwoAtLeast((int) Math.ceil(expectedSize / MAX_LOAD / SLOTS)));
+        }
+    }
+
+    /**
+     * Shrinks the table to the smallest number of buckets that keeps the load
+     * factor below 0.9, regardless of the initial capacity.
+     */
+    public void trimToSize() {
+        int newBuckets = AbstractHashTableMap.powerOfTwoAtLeast((int) Math.ceil((n + 1) / MAX_LOAD / SLOTS));
+        if (newBuckets < buckets) {
+            rehash(newBuckets);
+        }
+    }
+
+    /**
+     * Moves every entry to a table with the given number of buckets and new
+     * hash functions.
+     */
+    private void rehash(int newBuckets) {
+        rebuild(newBuckets, STASH, false);
+    }
+
+    /**
+     * Reinserts the entries of the current table, plus the homeless entry if
+     * asked to, into a new table. Whenever an entry doesn't fit, the new table is
+     * discarded and built again with other hash functions; after
+     * {@link #MAX_ATTEMPTS} failures in a row the stash doubles, so keys sharing
+     * a hash code always end up fitting.
+     */
+    private void rebuild(int newBuckets, int stashCapacity, boolean withHomeless) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldEnd = slots + stashSize;
+        Object extraKey = homelessKey;
+        Object extraValue = homelessValue;
+        int extraHash = homelessHash;
+        for (int attempts = 1; ; attempts++) {
+            allocate(newBuckets, stashCapacity);
+            randomizeHash();
+            boolean fits = !withHomeless || insert(extraKey, extraValue, extraHash);
+            for (int i = 0; fits && i < oldEnd; i++) {
+                if (oldKeys[i] != null) {
+                    fits = insert(oldKeys[i], oldValues[i], oldHashes[i]);
+                }
+            }
+            if (fits) {
+                homelessKey = null;
+                homelessValue = null;
+                return;
+            }
+            if (attempts % MAX_ATTEMPTS == 0) {
+                stashCapacity *= 2;
+            }
+        }
+    }
+
+}
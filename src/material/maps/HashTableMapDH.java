@@ -1,6 +1,12 @@
 package material.maps;
 
 /**
+ * Open addressing hash table with double hashing. The distance between the
+ * probes of a key comes from a second hash of its hash code and is computed once
+ * per lookup. To make every probe sequence visit the whole table the capacity is
+ * rounded up to a prime, or to a power of two in power-of-two mode, where the
+ * step is always odd.
+ *
  * @param <K> The key
  * @param <V> The stored value
  * @author vlt23
@@ -19,22 +25,63 @@ public class HashTableMapDH<K, V> extends AbstractHashTableMap<K, V> {
         super(p, cap);
     }
 
+    /**
+     * Creates a hash table with the given capacity.
+     *
+     * @param size       initial capacity
+     * @param powerOfTwo if true, the capacity is rounded up to a power of two
+     *                   and bucket indexes are computed with a bit mask
+     */
+    public HashTableMapDH(int size, boolean powerOfTwo) {
+        super(size, powerOfTwo);
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapDH<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapDH<>(Math.max(2 * expectedSize, 2));
+    }
+
+    @Override
+    protected int offset(int hash, int i, int capacity) {
+        return ProbingStrategy.DOUBLE.offset(hash, i, capacity);
+    }
+
     @Override
-    protected int offset(K key, int i) {
-        int prime = findPrimeMinorThatN();
-        return (prime - (key.hashCode() % prime)) * i;
+    protected int probeStep(int hash, int capacity) {
+        return ProbingStrategy.DOUBLE.step(hash, capacity);
     }
 
-    private int findPrimeMinorThatN() {
-        int[] somePrimes = {997, 523, 223, 73, 23, 7, 3};
-        int i = 0;
-        while (super.capacity < somePrimes[i]) {
-            i++;
+    /**
+     * Rounds the capacity up to a prime, unless it is a power of two.
+     */
+    @Override
+    protected int adjustCapacity(int cap) {
+        return powerOfTwo ? super.adjustCapacity(cap) : primeAtLeast(cap);
+    }
+
+    private static int primeAtLeast(int n) {
+        if (n <= 2) {
+            return 2;
         }
-        if (i < somePrimes.length - 3) {
-            i += 3;
+        int p = n | 1;
+        while (!isPrime(p)) {
+            p += 2;
+        }
+        return p;
+    }
+
+    private static boolean isPrime(int n) {
+        for (int d = 3; d <= n / d; d += 2) {
+            if (n % d == 0) {
+                return false;
+            }
         }
-        return somePrimes[i];
+        return true;
     }
 
 }
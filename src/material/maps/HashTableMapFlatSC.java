@@ -0,0 +1,429 @@
+package material.maps;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Separate chaining hash table stored in flat arrays. Instead of a list per
+ * bucket and an object per entry, the entries live in parallel arrays of keys,
+ * values, hash codes and next indexes, and every bucket keeps the index of the
+ * first entry of its chain.
+ *
+ * <p>Entries are kept in the first n positions of the arrays: a removal moves
+ * the last entry into the freed position, so iterating the map is a sequential
+ * scan. The capacity is a power of two, the hash function is a multiply and
+ * xor-shift with a random odd multiplier, and the load factor is kept between
+ * 0.125 and 0.5 as in {@link HashTableMapSC}.</p>
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class HashTableMapFlatSC<K, V> implements Map<K, V> {
+
+    private static final int NONE = -1; // end of a chain, or empty bucket
+
+    private static final class FlatEntry<T, U> implements Entry<T, U> {
+
+        private final T key;
+        private final U value;
+
+        FlatEntry(T key, U value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public T getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + "," + value + ")";
+        }
+    }
+
+    /**
+     * Walks the entries stored when the iterator was created.
+     */
+    private abstract class FlatIterator<T> implements Iterator<T> {
+
+        private final Object[] keyArray = keys;
+        private final Object[] valueArray = values;
+        private final int size = n;
+        private int index = 0;
+
+        abstract T element(K key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (hasNext()) {
+                T toReturn = element((K) keyArray[index], (V) valueArray[index]);
+                index++;
+                return toReturn;
+            }
+            throw new IllegalStateException("The map has not more elements");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Splits the packed entry positions, so every range knows its exact size.
+     */
+    private static class FlatSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final Object[] keyArray;
+        private final Object[] valueArray;
+
+        FlatSpliterator(Object[] keyArray, Object[] valueArray, int origin, int fence, int characteristics) {
+            super(origin, fence, fence - origin, characteristics);
+            this.keyArray = keyArray;
+            this.valueArray = valueArray;
+        }
+
+        @Override
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new FlatSpliterator<>(keyArray, valueArray, origin, fence, characteristics);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            if (index < fence) {
+                int i = index++;
+                action.accept(new FlatEntry<>((T) keyArray[i], (U) valueArray[i]));
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private int n;
+    private int capacity;
+    private final int minCapacity;
+    private int scale; // random odd multiplier of the hash function
+    private int[] head; // index of the first entry of every bucket
+    private int[] next; // index of the next entry in the same bucket
+    private int[] hashes; // cached key.hashCode() of every entry
+    private Object[] keys;
+    private Object[] values;
+
+    /**
+     * Creates a hash table with capacity 1024.
+     */
+    public HashTableMapFlatSC() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity.
+     *
+     * @param cap initial capacity (rounded up to a power of two)
+     */
+    public HashTableMapFlatSC(int cap) {
+        this.capacity = AbstractHashTableMap.powerOfTwoAtLeast(Math.max(cap, 2));
+        this.minCapacity = capacity;
+        this.head = new int[capacity];
+        Arrays.fill(head, NONE);
+        int entries = capacity / 2;
+        this.next = new int[entries];
+        this.hashes = new int[entries];
+        this.keys = new Object[entries];
+        this.values = new Object[entries];
+        this.scale = new Random().nextInt() | 1;
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapFlatSC<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapFlatSC<>(Math.max(2 * expectedSize, 2));
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    private int hashValue(int hash) {
+        int h = hash * scale;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    /**
+     * Returns the index of the entry of a key, or {@link #NONE}.
+     */
+    private int findIndex(K key, int hash) {
+        for (int i = head[hashValue(hash)]; i != NONE; i = next[i]) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        checkKey(key);
+        int i = findIndex(key, key.hashCode());
+        return (i == NONE) ? null : (V) values[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int i = findIndex(key, hash);
+        if (i != NONE) {
+            V toReturn = (V) values[i];
+            values[i] = value;
+            return toReturn;
+        }
+        if (n >= capacity / 2) {
+            rehash(capacity * 2);
+        }
+        int b = hashValue(hash);
+        i = n++;
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        next[i] = head[b];
+        head[b] = i;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) {
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            put(e.getKey(), e.getValue()); // never rehashes, the table is big enough
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        checkKey(key);
+        int hash = key.hashCode();
+        int b = hashValue(hash);
+        int prev = NONE;
+        int i = head[b];
+        while (i != NONE && !(hashes[i] == hash && key.equals(keys[i]))) {
+            prev = i;
+            i = next[i];
+        }
+        if (i == NONE) {
+            return null;
+        }
+        V toReturn = (V) values[i];
+        if (prev == NONE) {
+            head[b] = next[i];
+        } else {
+            next[prev] = next[i];
+        }
+        int last = --n;
+        if (i != last) {
+            moveEntry(last, i); // keep the entries packed at the start of the arrays
+        }
+        keys[last] = null;
+        values[last] = null;
+        if (n < capacity / 8 && capacity / 2 >= minCapacity) {
+            rehash(capacity / 2);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Moves an entry to a free position and updates the link that pointed to it.
+     */
+    private void moveEntry(int from, int to) {
+        int b = hashValue(hashes[from]);
+        if (head[b] == from) {
+            head[b] = to;
+        } else {
+            int p = head[b];
+            while (next[p] != from) {
+                p = next[p];
+            }
+            next[p] = to;
+        }
+        keys[to] = keys[from];
+        values[to] = values[from];
+        hashes[to] = hashes[from];
+        next[to] = next[from];
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new FlatIterator<Entry<K, V>>() {
+            @Override
+            Entry<K, V> element(K key, V value) {
+                return new FlatEntry<>(key, value);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new FlatIterator<K>() {
+            @Override
+            K element(K key, V value) {
+                return key;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new FlatIterator<V>() {
+            @Override
+            V element(K key, V value) {
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return this::iterator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < n; i++) {
+            action.accept((K) keys[i], (V) values[i]);
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new FlatSpliterator<>(keys, values, 0, n,
+                Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Cursor<K, V> cursor() {
+        return new Cursor<K, V>() {
+            private final Object[] keyArray = keys;
+            private final Object[] valueArray = values;
+            private final int size = n;
+            private int index = -1;
+
+            @Override
+            public boolean advance() {
+                if (index < size) {
+                    index++;
+                }
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public K key() {
+                checkPosition();
+                return (K) keyArray[index];
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V value() {
+                checkPosition();
+                return (V) valueArray[index];
+            }
+
+            private void checkPosition() {
+                if (index < 0 || index >= size) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+            }
+        };
+    }
+
+    /**
+     * Determines whether a key is valid.
+     *
+     * @param k Key
+     */
+    protected void checkKey(K k) {
+        if (k == null) {
+            throw new IllegalStateException("Invalid key: null.");
+        }
+    }
+
+    /**
+     * Grows the arrays, if needed, so that they hold the given number of entries
+     * without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > capacity / 2) {
+            rehash(2 * expectedSize);
+        }
+    }
+
+    /**
+     * Shrinks the arrays to the smallest capacity that keeps the load factor
+     * less than or equal to 0.5, regardless of the initial capacity.
+     */
+    public void trimToSize() {
+        rehash(Math.max(2 * n, 2));
+    }
+
+    /**
+     * Changes the number of buckets, rounded up to a power of two, chooses a new
+     * hash function and links the entries again. The entries don't move.
+     */
+    private void rehash(int newCapacity) {
+        newCapacity = AbstractHashTableMap.powerOfTwoAtLeast(newCapacity);
+        if (newCapacity / 2 < n) {
+            return;
+        }
+        capacity = newCapacity;
+        int entries = capacity / 2;
+        next = Arrays.copyOf(next, entries);
+        hashes = Arrays.copyOf(hashes, entries);
+        keys = Arrays.copyOf(keys, entries);
+        values = Arrays.copyOf(values, entries);
+        head = new int[capacity];
+        Arrays.fill(head, NONE);
+        scale = new Random().nextInt() | 1;
+        for (int i = 0; i < n; i++) {
+            int b = hashValue(hashes[i]);
+            next[i] = head[b];
+            head[b] = i;
+        }
+    }
+
+}
@@ -22,9 +22,35 @@ public class HashTableMapLP<K, V> extends AbstractHashTableMap<K, V> {
         super(p, cap);
     }
 
+    /**
+     * Creates a hash table with the given capacity.
+     *
+     * @param size       initial capacity
+     * @param powerOfTwo if true, the capacity is rounded up to a power of two
+     *                   and bucket indexes are computed with a bit mask
+     */
+    public HashTableMapLP(int size, boolean powerOfTwo) {
+        super(size, powerOfTwo);
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapLP<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapLP<>(Math.max(2 * expectedSize, 2));
+    }
+
+    @Override
+    protected int offset(int hash, int i, int capacity) {
+        return ProbingStrategy.LINEAR.offset(hash, i, capacity);
+    }
+
     @Override
-    protected int offset(K key, int i) {
-        return i;
+    protected int probeStep(int hash, int capacity) {
+        return ProbingStrategy.LINEAR.step(hash, capacity);
     }
 
 }
@@ -1,6 +1,11 @@
 package material.maps;
 
 /**
+ * Open addressing hash table with quadratic probing. In power-of-two mode the
+ * offsets are the triangular numbers i(i+1)/2, which visit every bucket of the
+ * table. Otherwise the offsets are 7i + 11i^2, which may miss free buckets; the
+ * table then grows to place the key.
+ *
  * @param <K> The key
  * @param <V> The stored value
  * @author vlt23
@@ -19,11 +24,31 @@ public class HashTableMapQP<K, V> extends AbstractHashTableMap<K, V> {
         super(p, cap);
     }
 
+    /**
+     * Creates a hash table with the given capacity.
+     *
+     * @param size       initial capacity
+     * @param powerOfTwo if true, the capacity is rounded up to a power of two
+     *                   and bucket indexes are computed with a bit mask
+     */
+    public HashTableMapQP(int size, boolean powerOfTwo) {
+        super(size, powerOfTwo);
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapQP<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapQP<>(Math.max(2 * expectedSize, 2));
+    }
+
     @Override
-    protected int offset(K key, int i) {
-        int c1 = 7;
-        int c2 = 11;
-        return c1 * i + c2 * (int) Math.pow(i, 2);
+    protected int offset(int hash, int i, int capacity) {
+        ProbingStrategy probing = powerOfTwo ? ProbingStrategy.TRIANGULAR : ProbingStrategy.QUADRATIC;
+        return probing.offset(hash, i, capacity);
     }
 
 }
@@ -0,0 +1,211 @@
+package material.maps;
+
+/**
+ * Open addressing hash table with Robin Hood linear probing. When a new entry
+ * finds a slot whose entry is closer to its home bucket than the new one, the
+ * richer entry is displaced and the insertion continues with it. This keeps the
+ * variance of the probe lengths low, so lookups can stop as soon as they reach
+ * an entry closer to its home than the key being searched.
+ *
+ * <p>Removals shift the following entries of the cluster one position back, so
+ * the table never contains AVAILABLE markers. Because of that the map can run
+ * with load factors well above 0.5 (0.875 by default). The capacity is always a
+ * power of two. The table is halved when the load drops below a quarter of the
+ * maximum load factor, never below its initial capacity.</p>
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class HashTableMapRH<K, V> extends AbstractHashTableMap<K, V> {
+
+    private final float loadFactor;
+
+    /**
+     * Creates a hash table with capacity 1024 and load factor 0.875.
+     */
+    public HashTableMapRH() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and load factor 0.875.
+     *
+     * @param size initial capacity (rounded up to a power of two)
+     */
+    public HashTableMapRH(int size) {
+        this(size, 0.875f);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and maximum load factor.
+     *
+     * @param size       initial capacity (rounded up to a power of two)
+     * @param loadFactor maximum ratio between entries and capacity, in (0, 1)
+     */
+    public HashTableMapRH(int size, float loadFactor) {
+        super(size, true);
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new RuntimeException("Invalid load factor.");
+        }
+        this.loadFactor = loadFactor;
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapRH<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapRH<>((int) Math.ceil(expectedSize / 0.875));
+    }
+
+    @Override
+    protected int offset(int hash, int i, int capacity) {
+        return i;
+    }
+
+    /**
+     * Not supported: Robin Hood insertion and backward shift removal need every
+     * entry in a single bucket array.
+     */
+    @Override
+    public void setIncrementalRehash(boolean incremental) {
+        if (incremental) {
+            throw new UnsupportedOperationException("Robin Hood hashing does not support incremental rehash.");
+        }
+    }
+
+    /**
+     * Returns how far the entry stored at index is from its home bucket.
+     */
+    private int probeDistance(HashEntry<K, V> e, int index) {
+        return (index - hashValue(e.hash)) & (capacity - 1);
+    }
+
+    /**
+     * Looks for a key. Returns the index where it was found, or -(index + 1)
+     * where index is the slot where the search stopped: an empty slot or an
+     * entry closer to its home than the key would be.
+     */
+    @Override
+    protected int findEntry(K key, int hash) {
+        int index = hashValue(hash);
+        for (int dist = 0; ; dist++) {
+            HashEntry<K, V> e = bucket[index];
+            if (e == null || probeDistance(e, index) < dist) {
+                recordLookup(dist + 1);
+                return -(index + 1); // the key would have been found before
+            }
+            if (e.hash == hash && key.equals(e.key)) {
+                recordLookup(dist + 1);
+                return index;
+            }
+            index = (index + 1) & (capacity - 1);
+        }
+    }
+
+    @Override
+    public V put(K key, V value) throws IllegalStateException {
+        checkKey(key);
+        int hash = key.hashCode();
+        int i = findEntry(key, hash);
+        if (isFound(i)) {
+            return bucket[i].setValue(value);
+        }
+        if (n + 1 > capacity * loadFactor) {
+            rehash();
+        }
+        insert(new HashEntry<>(key, value, hash));
+        n++;
+        return null;
+    }
+
+    /**
+     * Places an entry whose key is not in the table, displacing richer entries.
+     */
+    private void insert(HashEntry<K, V> entry) {
+        int index = hashValue(entry.hash);
+        int dist = 0;
+        while (true) {
+            HashEntry<K, V> e = bucket[index];
+            if (e == null) {
+                bucket[index] = entry;
+                return;
+            }
+            int existingDist = probeDistance(e, index);
+            if (existingDist < dist) { // take the slot from the richer entry
+                bucket[index] = entry;
+                entry = e;
+                dist = existingDist;
+            }
+            index = (index + 1) & (capacity - 1);
+            dist++;
+        }
+    }
+
+    @Override
+    public V remove(K key) throws IllegalStateException {
+        int i = findEntry(key);
+        if (!isFound(i)) {
+            return null;
+        }
+        V toReturn = bucket[i].getValue();
+        // backward shift: move the rest of the cluster one slot closer to home
+        int index = i;
+        while (true) {
+            int next = (index + 1) & (capacity - 1);
+            HashEntry<K, V> e = bucket[next];
+            if (e == null || probeDistance(e, next) == 0) {
+                bucket[index] = null;
+                break;
+            }
+            bucket[index] = e;
+            index = next;
+        }
+        n--;
+        if (n < capacity * loadFactor / 4 && capacity / 2 >= minCapacity) {
+            rehash(capacity / 2);
+        }
+        return toReturn;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) throws IllegalStateException {
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            put(e.getKey(), e.getValue()); // never rehashes, the table is big enough
+        }
+    }
+
+    @Override
+    protected int capacityFor(int entries) {
+        return Math.max((int) Math.ceil(entries / loadFactor), 2);
+    }
+
+    /**
+     * Changes the size of the hash table and reinserts all the entries.
+     * The new capacity is rounded up to a power of two and is ignored if it
+     * can't hold the current entries within the load factor.
+     */
+    @Override
+    protected void rehash(int newCapacity) {
+        newCapacity = powerOfTwoAtLeast(newCapacity);
+        if (n > newCapacity * loadFactor) {
+            return;
+        }
+        long start = System.nanoTime();
+        capacity = newCapacity;
+        HashEntry<K, V>[] old = bucket;
+        bucket = newBucketArray(capacity);
+        randomizeHash();
+        for (HashEntry<K, V> e : old) {
+            if (e != null) {
+                insert(e);
+            }
+        }
+        recordRehash(start);
+    }
+
+}
@@ -1,26 +1,47 @@
 package material.maps;
 
+import material.Position;
+import material.tree.binarysearchtree.AVLTree;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Separate chaining table implementation of hash tables. Note that all
  * "matching" is based on the equals method.
  *
+ * <p>The table doubles its capacity when the load factor reaches 0.5 and halves
+ * it, never below the initial capacity, when it drops below 0.125.
+ * {@link #trimToSize()} shrinks it to the minimum capacity explicitly.</p>
+ *
+ * <p>Buckets hold their entries in a list. When a list reaches 8 entries and
+ * all its keys are Comparable instances of the same class, it is converted into
+ * an {@link AVLTree} ordered by hash code and then by compareTo, so lookups in
+ * buckets full of colliding keys take logarithmic time. A tree goes back to a
+ * list when it drops below 6 entries or receives a key it can't order.</p>
+ *
+ * <p>Statistics about chain lengths and rehashes can be enabled through the
+ * {@link Monitorable} interface.</p>
+ *
  * @author A. Duarte, J. Vélez, J. Sánchez-Oro, JD. Quintana, vlt23
  */
-public class HashTableMapSC<K, V> implements Map<K, V> {
+public class HashTableMapSC<K, V> implements Map<K, V>, Monitorable {
 
     private static class HashEntry<T, U> implements Entry<T, U> {
 
         protected T key;
         protected U value;
+        protected final int hash; // cached key.hashCode()
 
-        public HashEntry(T k, U v) {
+        public HashEntry(T k, U v, int h) {
             key = k;
             value = v;
+            hash = h;
         }
 
         @Override
@@ -55,44 +76,249 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
         }
     }
 
+    /**
+     * Entries of a bucket, all of them with the same hash value.
+     */
+    private interface Bucket<T, U> extends Iterable<HashEntry<T, U>> {
+
+        /**
+         * Returns the entry of a key, or null.
+         */
+        HashEntry<T, U> find(T key, int hash);
+
+        /**
+         * Adds an entry whose key is not in the bucket.
+         */
+        void addEntry(HashEntry<T, U> entry);
+
+        /**
+         * Removes and returns the entry of a key, or null.
+         */
+        HashEntry<T, U> removeEntry(T key, int hash);
+
+        /**
+         * Returns the number of entries a lookup of the key compares.
+         */
+        int probeLength(T key, int hash);
+
+        int size();
+    }
+
+    private static class ListBucket<T, U> implements Bucket<T, U> {
+
+        private final ArrayList<HashEntry<T, U>> list;
+
+        ListBucket() {
+            list = new ArrayList<>();
+        }
+
+        ListBucket(Bucket<T, U> entries) {
+            list = new ArrayList<>(entries.size());
+            for (HashEntry<T, U> e : entries) {
+                list.add(e);
+            }
+        }
+
+        HashEntry<T, U> get(int i) {
+            return list.get(i);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public Iterator<HashEntry<T, U>> iterator() {
+            return list.iterator();
+        }
+
+        /**
+         * Entries whose cached hash code differs from the given one are skipped
+         * without calling equals.
+         */
+        @Override
+        public HashEntry<T, U> find(T key, int hash) {
+            for (int i = 0; i < size(); i++) {
+                HashEntry<T, U> e = get(i);
+                if (e.hash == hash && e.getKey().equals(key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void addEntry(HashEntry<T, U> entry) {
+            list.add(entry);
+        }
+
+        @Override
+        public int probeLength(T key, int hash) {
+            for (int i = 0; i < size(); i++) {
+                HashEntry<T, U> e = get(i);
+                if (e.hash == hash && e.getKey().equals(key)) {
+                    return i + 1;
+                }
+            }
+            return size();
+        }
+
+        @Override
+        public HashEntry<T, U> removeEntry(T key, int hash) {
+            for (int i = 0; i < size(); i++) {
+                HashEntry<T, U> e = get(i);
+                if (e.hash == hash && e.getKey().equals(key)) {
+                    return list.remove(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns whether all the keys are Comparable instances of the same
+         * class, so the entries can be kept in a {@link TreeBucket}.
+         */
+        boolean isTreeable() {
+            Class<?> keyClass = get(0).getKey().getClass();
+            if (!Comparable.class.isAssignableFrom(keyClass)) {
+                return false;
+            }
+            for (int i = 1; i < size(); i++) {
+                if (get(i).getKey().getClass() != keyClass) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class TreeBucket<T, U> implements Bucket<T, U> {
+
+        private final AVLTree<HashEntry<T, U>> tree = new AVLTree<>(TreeBucket::compare);
+        private final Class<?> keyClass;
+
+        TreeBucket(ListBucket<T, U> entries) {
+            keyClass = entries.get(0).getKey().getClass();
+            for (HashEntry<T, U> e : entries) {
+                tree.insert(e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T, U> int compare(HashEntry<T, U> a, HashEntry<T, U> b) {
+            int c = Integer.compare(a.hash, b.hash);
+            return (c != 0) ? c : ((Comparable<T>) a.getKey()).compareTo(b.getKey());
+        }
+
+        /**
+         * Returns whether a key can be ordered together with the keys of the tree.
+         */
+        boolean accepts(T key) {
+            return key.getClass() == keyClass;
+        }
+
+        private Position<HashEntry<T, U>> findPosition(T key, int hash) {
+            if (!accepts(key)) {
+                // the key can't be ordered with the tree, but it may still equal one of its keys
+                for (Position<HashEntry<T, U>> p : tree) {
+                    HashEntry<T, U> e = p.getElement();
+                    if (e.hash == hash && e.getKey().equals(key)) {
+                        return p;
+                    }
+                }
+                return null;
+            }
+            HashEntry<T, U> probe = new HashEntry<>(key, null, hash);
+            Position<HashEntry<T, U>> pos = tree.find(probe);
+            if (pos == null || pos.getElement().getKey().equals(key)) {
+                return pos;
+            }
+            // compareTo is not consistent with equals for this key
+            for (Position<HashEntry<T, U>> p : tree.findAll(probe)) {
+                if (p.getElement().getKey().equals(key)) {
+                    return p;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public HashEntry<T, U> find(T key, int hash) {
+            Position<HashEntry<T, U>> pos = findPosition(key, hash);
+            return (pos == null) ? null : pos.getElement();
+        }
+
+        @Override
+        public void addEntry(HashEntry<T, U> entry) {
+            tree.insert(entry);
+        }
+
+        /**
+         * Approximated by the height of a perfectly balanced tree of the same
+         * size, an AVL tree is at most 45% taller.
+         */
+        @Override
+        public int probeLength(T key, int hash) {
+            return 32 - Integer.numberOfLeadingZeros(size());
+        }
+
+        @Override
+        public HashEntry<T, U> removeEntry(T key, int hash) {
+            Position<HashEntry<T, U>> pos = findPosition(key, hash);
+            return (pos == null) ? null : tree.remove(pos);
+        }
+
+        @Override
+        public int size() {
+            return tree.size();
+        }
+
+        @Override
+        public Iterator<HashEntry<T, U>> iterator() {
+            Iterator<Position<HashEntry<T, U>>> it = tree.iterator();
+            return new Iterator<HashEntry<T, U>>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public HashEntry<T, U> next() {
+                    return it.next().getElement();
+                }
+            };
+        }
+    }
+
     private static class HashTableMapIterator<T, U> implements Iterator<Entry<T, U>> {
 
-        private int index;  // the bucket array index
-        private int pos;  // the list pos
-        private List<HashEntry<T, U>>[] bucket;
+        private int index;  // the next bucket array index
+        private Iterator<HashEntry<T, U>> current; // entries of the current bucket
+        private Bucket<T, U>[] bucket;
 
-        public HashTableMapIterator(List<HashEntry<T, U>>[] map, int numElems) {
+        public HashTableMapIterator(Bucket<T, U>[] map, int numElems) {
             this.bucket = map;
-            this.pos = 0;
-            if (numElems == 0) {
-                this.index = bucket.length;
-            } else {
-                this.index = 0;
-                goToNextElement();
-            }
+            this.index = (numElems == 0) ? bucket.length : 0;
+            goToNextElement();
         }
 
         private void goToNextElement() {
-            if (bucket[index] != null && this.pos < bucket[index].size() - 1) {
-                this.pos++;
-            } else {
-                this.pos = 0;
-                this.index++;
-                while (this.index < bucket.length && this.bucket[index] == null) {
-                    this.index++;
-                }
+            while ((current == null || !current.hasNext()) && index < bucket.length) {
+                Bucket<T, U> b = bucket[index++];
+                current = (b == null) ? null : b.iterator();
             }
         }
 
         @Override
         public boolean hasNext() {
-            return this.index < this.bucket.length;
+            return current != null && current.hasNext();
         }
 
         @Override
         public Entry<T, U> next() {
             if (hasNext()) {
-                Entry<T, U> toReturn = this.bucket[index].get(pos);
+                Entry<T, U> toReturn = current.next();
                 goToNextElement();
                 return toReturn;
             }
@@ -153,10 +379,120 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
         }
     }
 
+    /**
+     * Splits the bucket array by range. Buckets are walked as in the cursor.
+     */
+    private static class HashTableMapSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final Bucket<T, U>[] array;
+        private ListBucket<T, U> list; // bucket being walked if it is a list
+        private int pos; // position in the list
+        private Iterator<HashEntry<T, U>> treeIt; // entries left if the bucket is a tree
+
+        HashTableMapSpliterator(Bucket<T, U>[] array, int origin, int fence, long est, int characteristics) {
+            super(origin, fence, est, characteristics);
+            this.array = array;
+        }
+
+        @Override
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new HashTableMapSpliterator<>(array, origin, fence, est, characteristics);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            while (true) {
+                if (list != null && ++pos < list.size()) {
+                    action.accept(list.get(pos));
+                    return true;
+                }
+                if (treeIt != null && treeIt.hasNext()) {
+                    action.accept(treeIt.next());
+                    return true;
+                }
+                list = null;
+                treeIt = null;
+                if (index >= fence) {
+                    return false;
+                }
+                Bucket<T, U> b = array[index++];
+                if (b instanceof ListBucket) {
+                    list = (ListBucket<T, U>) b;
+                    pos = -1;
+                } else if (b != null) {
+                    treeIt = b.iterator();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cursor over the buckets. List buckets are read by index; the few buckets
+     * kept as trees are walked with their iterator.
+     */
+    private class HashTableMapCursor implements Cursor<K, V> {
+
+        private final Bucket<K, V>[] array = bucket;
+        private int index = -1; // current bucket
+        private ListBucket<K, V> list; // current bucket if it is a list
+        private int pos; // position in the list
+        private Iterator<HashEntry<K, V>> treeIt; // entries of the current bucket if it is a tree
+        private HashEntry<K, V> current;
+
+        @Override
+        public boolean advance() {
+            while (true) {
+                if (list != null && ++pos < list.size()) {
+                    current = list.get(pos);
+                    return true;
+                }
+                if (treeIt != null && treeIt.hasNext()) {
+                    current = treeIt.next();
+                    return true;
+                }
+                list = null;
+                treeIt = null;
+                if (++index >= array.length) {
+                    current = null;
+                    return false;
+                }
+                Bucket<K, V> b = array[index];
+                if (b instanceof ListBucket) {
+                    list = (ListBucket<K, V>) b;
+                    pos = -1;
+                } else if (b != null) {
+                    treeIt = b.iterator();
+                }
+            }
+        }
+
+        @Override
+        public K key() {
+            return entry().getKey();
+        }
+
+        @Override
+        public V value() {
+            return entry().getValue();
+        }
+
+        private HashEntry<K, V> entry() {
+            if (current == null) {
+                throw new IllegalStateException("The cursor is not on an entry.");
+            }
+            return current;
+        }
+    }
+
     private int n;
     private int prime, capacity;
+    private final int minCapacity;
     private long scale, shift;
-    private List<HashEntry<K, V>>[] bucket;
+    private Bucket<K, V>[] bucket;
+
+    private static final int TREEIFY_THRESHOLD = 8; // a list bucket of this size becomes a tree
+    private static final int UNTREEIFY_THRESHOLD = 6; // a tree bucket smaller than this becomes a list
+    private StatsRecorder stats; // null unless statistics are enabled
 
     /**
      * Creates a hash table with prime factor 109345121 and capacity 1000.
@@ -180,17 +516,27 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
      * @param p   prime number
      * @param cap initial capacity
      */
-    @SuppressWarnings("unchecked")
     public HashTableMapSC(int p, int cap) {
         this.prime = p;
         this.capacity = cap;
+        this.minCapacity = cap;
         this.n = 0;
-        this.bucket = (ArrayList<HashEntry<K, V>>[]) new ArrayList[capacity];
+        this.bucket = newBucketArray(capacity);
         Random rand = new Random();
         this.scale = rand.nextInt(prime - 1) + 1;
         this.shift = rand.nextInt(prime);
     }
 
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <K, V> HashTableMapSC<K, V> withExpectedSize(int expectedSize) {
+        return new HashTableMapSC<>(Math.max(2 * expectedSize, 2));
+    }
+
     /**
      * Hash function applying MAD method to default hash code.
      *
@@ -198,7 +544,17 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
      * @return the hash value
      */
     protected int hashValue(K key) {
-        return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % capacity);
+        return hashValue(key.hashCode());
+    }
+
+    /**
+     * Hash function applying MAD method to a hash code.
+     *
+     * @param hash hash code of a key
+     * @return the hash value
+     */
+    protected int hashValue(int hash) {
+        return (int) ((Math.abs(hash * scale + shift) % prime) % capacity);
     }
 
     @Override
@@ -214,57 +570,104 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
     @Override
     public V get(K key) {
         checkKey(key);
-        int index = hashValue(key);
-        int pos = findKey(index, key);
-        if (pos != -1) {
-            return bucket[index].get(pos).getValue();
-        }
-        return null;
+        int hash = key.hashCode();
+        HashEntry<K, V> e = findKey(hashValue(hash), key, hash);
+        return (e == null) ? null : e.getValue();
     }
 
     @Override
     public V put(K key, V value) {
         checkKey(key);
-        int index = hashValue(key);
-        int pos = findKey(index, key);
-        if (pos != -1) {
+        int hash = key.hashCode();
+        int index = hashValue(hash);
+        HashEntry<K, V> e = findKey(index, key, hash);
+        if (e != null) {
             // setValue method already returns the old value
-            return bucket[index].get(pos).setValue(value);
+            return e.setValue(value);
         }
         if (n >= capacity / 2) {
             rehash(capacity * 2);
-            index = hashValue(key);
+            index = hashValue(hash);
         }
-        if (bucket[index] == null) {
-            bucket[index] = new ArrayList<>();
-        }
-        bucket[index].add(new HashEntry<>(key, value));
+        addEntry(index, new HashEntry<>(key, value, hash));
         n++;
         return null;
     }
 
+    /**
+     * Copies all the entries of the given map. The table is resized once for
+     * the final number of entries, so no load factor check is done per entry.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) {
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            K key = e.getKey();
+            checkKey(key);
+            int hash = key.hashCode();
+            int index = hashValue(hash);
+            HashEntry<K, V> found = findKey(index, key, hash);
+            if (found != null) {
+                found.setValue(e.getValue());
+            } else {
+                addEntry(index, new HashEntry<>(key, e.getValue(), hash));
+                n++;
+            }
+        }
+    }
+
+    /**
+     * Adds an entry whose key is not in the map to a bucket, converting the
+     * bucket between list and tree as needed.
+     */
+    private void addEntry(int index, HashEntry<K, V> entry) {
+        Bucket<K, V> b = bucket[index];
+        if (b == null) {
+            b = new ListBucket<>();
+            bucket[index] = b;
+        } else if (b instanceof TreeBucket && !((TreeBucket<K, V>) b).accepts(entry.getKey())) {
+            b = new ListBucket<>(b);
+            bucket[index] = b;
+        }
+        b.addEntry(entry);
+        if (b instanceof ListBucket && b.size() >= TREEIFY_THRESHOLD
+                && ((ListBucket<K, V>) b).isTreeable()) {
+            bucket[index] = new TreeBucket<>((ListBucket<K, V>) b);
+        }
+    }
+
     @Override
     public V remove(K key) {
         checkKey(key);
-        int index = hashValue(key);
-        int pos = findKey(index, key);
-        if (pos != -1) {
+        int hash = key.hashCode();
+        int index = hashValue(hash);
+        Bucket<K, V> b = bucket[index];
+        HashEntry<K, V> e = (b == null) ? null : b.removeEntry(key, hash);
+        if (e != null) {
             n--;
-            return bucket[index].remove(pos).getValue();
+            V toReturn = e.getValue();
+            if (b.size() == 0) {
+                bucket[index] = null;
+            } else if (b instanceof TreeBucket && b.size() < UNTREEIFY_THRESHOLD) {
+                bucket[index] = new ListBucket<>(b);
+            }
+            if (n < capacity / 8 && capacity / 2 >= minCapacity) {
+                rehash(capacity / 2);
+            }
+            return toReturn;
         }
         return null;
     }
 
-    private int findKey(int index, K key) {
-        if (bucket[index] == null) {
-            return -1;
-        }
-        for (int i = 0; i < bucket[index].size(); i++) {
-            if (bucket[index].get(i).getKey().equals(key)) {
-                return i;
-            }
+    /**
+     * Returns the entry of a key in a bucket, or null.
+     */
+    private HashEntry<K, V> findKey(int index, K key, int hash) {
+        Bucket<K, V> b = bucket[index];
+        if (stats != null && stats.sampleNext()) {
+            stats.recordProbes((b == null) ? 0 : b.probeLength(key, hash));
         }
-        return -1;
+        return (b == null) ? null : b.find(key, hash);
     }
 
     @Override
@@ -287,6 +690,34 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
         return () -> new HashTableMapIterator<>(bucket, n);
     }
 
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        for (Bucket<K, V> b : bucket) {
+            if (b instanceof ListBucket) {
+                ListBucket<K, V> list = (ListBucket<K, V>) b;
+                for (int i = 0; i < list.size(); i++) {
+                    HashEntry<K, V> e = list.get(i);
+                    action.accept(e.key, e.value);
+                }
+            } else if (b != null) {
+                for (HashEntry<K, V> e : b) {
+                    action.accept(e.key, e.value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Cursor<K, V> cursor() {
+        return new HashTableMapCursor();
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new HashTableMapSpliterator<>(bucket, 0, bucket.length, n,
+                Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
     /**
      * Determines whether a key is valid.
      *
@@ -298,6 +729,31 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
         }
     }
 
+    /**
+     * Grows the bucket array, if needed, so that it holds the given number of
+     * entries without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (2 * expectedSize > capacity) {
+            rehash(2 * expectedSize);
+        }
+    }
+
+    /**
+     * Shrinks the bucket array to the smallest capacity that keeps the load
+     * factor less than or equal to 0.5, regardless of the initial capacity.
+     */
+    public void trimToSize() {
+        rehash(Math.max(2 * n, 2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, U> Bucket<T, U>[] newBucketArray(int length) {
+        return (Bucket<T, U>[]) new Bucket<?, ?>[length];
+    }
+
     /**
      * Increase/reduce the size of the hash table and rehashes all the entries.
      */
@@ -305,23 +761,57 @@ public class HashTableMapSC<K, V> implements Map<K, V> {
         if (newCap < this.size() * 2) {
             return;
         }
+        long start = System.nanoTime();
         capacity = newCap;
-        List<HashEntry<K, V>>[] old = bucket;
-        bucket = (ArrayList<HashEntry<K, V>>[]) new ArrayList[capacity];
+        Bucket<K, V>[] old = bucket;
+        bucket = newBucketArray(capacity);
         Random rand = new Random();
         scale = rand.nextInt(prime - 1) + 1;
         shift = rand.nextInt(prime);
-        for (List<HashEntry<K, V>> entryList : old) {
-            if (entryList != null) {
-                for (HashEntry<K, V> entry : entryList) {
-                    int index = hashValue(entry.getKey());
-                    if (bucket[index] == null) {
-                        bucket[index] = new ArrayList<>();
-                    }
-                    bucket[index].add(entry);
+        for (Bucket<K, V> b : old) {
+            if (b != null) {
+                for (HashEntry<K, V> entry : b) {
+                    addEntry(hashValue(entry.hash), entry);
                 }
             }
         }
+        if (stats != null) {
+            stats.recordRehash(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setStatisticsEnabled(boolean enabled) {
+        if (!enabled) {
+            stats = null;
+        } else if (stats == null) {
+            stats = new StatsRecorder();
+        }
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * {@inheritDoc} Probe lengths count the entries compared in a bucket; for
+     * buckets kept as trees they are estimated from the size of the tree.
+     */
+    @Override
+    public HashTableStats getStatistics() {
+        Bucket<K, V>[] b = bucket;
+        int[] counts = new int[1];
+        int longest = 0;
+        for (Bucket<K, V> chain : b) {
+            int length = (chain == null) ? 0 : chain.size();
+            if (length >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(length + 1, 2 * counts.length));
+            }
+            counts[length]++;
+            longest = Math.max(longest, length);
+        }
+        return new HashTableStats(n, b.length, 0, stats, Arrays.copyOf(counts, longest + 1));
     }
 
 }
@@ -0,0 +1,131 @@
+package material.maps;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Publishes the statistics of a {@link Monitorable} hash table as an MXBean.
+ * JMX clients read the attributes one by one, so a snapshot is reused for a
+ * second instead of walking the table for every attribute.
+ *
+ * <p>The maps are not thread safe: while the application modifies a map, a
+ * snapshot taken from the JMX thread may be slightly inaccurate.</p>
+ *
+ * @author vlt23
+ */
+public class HashTableMonitor implements HashTableMonitorMXBean {
+
+    private static final long REFRESH_NANOS = 1_000_000_000L;
+
+    private final Monitorable map;
+    private HashTableStats snapshot;
+    private long snapshotTime;
+
+    public HashTableMonitor(Monitorable map) {
+        this.map = map;
+    }
+
+    /**
+     * Registers the statistics of a map in the platform MBean server, under
+     * the name material.maps:type=HashTable,name=&lt;name&gt;. Statistics are
+     * enabled if they were not.
+     *
+     * @param name name of the map
+     * @param map  the map to monitor
+     * @return the name of the registered MXBean
+     */
+    public static ObjectName register(String name, Monitorable map) {
+        map.setStatisticsEnabled(true);
+        try {
+            ObjectName objectName = new ObjectName("material.maps:type=HashTable,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName); // the name now belongs to this map
+            }
+            server.registerMBean(new HashTableMonitor(map), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new RuntimeException("The map statistics can't be registered.", e);
+        }
+    }
+
+    /**
+     * Removes an MXBean registered by {@link #register(String, Monitorable)}.
+     *
+     * @param objectName name returned by register
+     */
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("The map statistics can't be unregistered.", e);
+        }
+    }
+
+    private synchronized HashTableStats stats() {
+        long now = System.nanoTime();
+        if (snapshot == null || now - snapshotTime > REFRESH_NANOS) {
+            snapshot = map.getStatistics();
+            snapshotTime = now;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public int getSize() {
+        return stats().getSize();
+    }
+
+    @Override
+    public int getCapacity() {
+        return stats().getCapacity();
+    }
+
+    @Override
+    public double getLoadFactor() {
+        return stats().getLoadFactor();
+    }
+
+    @Override
+    public int getTombstones() {
+        return stats().getTombstones();
+    }
+
+    @Override
+    public double getAverageProbeLength() {
+        return stats().getAverageProbeLength();
+    }
+
+    @Override
+    public int getMaxProbeLength() {
+        return stats().getMaxProbeLength();
+    }
+
+    @Override
+    public long getRehashCount() {
+        return stats().getRehashCount();
+    }
+
+    @Override
+    public long getRehashNanos() {
+        return stats().getRehashNanos();
+    }
+
+    @Override
+    public int[] getChainLengthHistogram() {
+        return stats().getChainLengthHistogram();
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return map.isStatisticsEnabled();
+    }
+
+    @Override
+    public synchronized void setStatisticsEnabled(boolean enabled) {
+        map.setStatisticsEnabled(enabled);
+        snapshot = null;
+    }
+}
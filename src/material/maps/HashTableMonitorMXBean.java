@@ -0,0 +1,31 @@
+package material.maps;
+
+/**
+ * JMX view of the statistics of a hash table, see {@link HashTableStats}.
+ *
+ * @author vlt23
+ */
+public interface HashTableMonitorMXBean {
+
+    int getSize();
+
+    int getCapacity();
+
+    double getLoadFactor();
+
+    int getTombstones();
+
+    double getAverageProbeLength();
+
+    int getMaxProbeLength();
+
+    long getRehashCount();
+
+    long getRehashNanos();
+
+    int[] getChainLengthHistogram();
+
+    boolean isStatisticsEnabled();
+
+    void setStatisticsEnabled(boolean enabled);
+}
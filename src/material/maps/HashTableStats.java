@@ -0,0 +1,134 @@
+package material.maps;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of the statistics of a {@link Monitorable} hash table.
+ *
+ * <p>The size, capacity, tombstones and chain lengths describe the table when
+ * the snapshot was taken. The probe lengths and rehash counters accumulate
+ * while statistics are enabled, and are 0 otherwise. Probe lengths come from a
+ * sample of the lookups: a probe is a bucket inspected in open addressing maps
+ * and an entry compared in separate chaining maps.</p>
+ *
+ * @author vlt23
+ */
+public final class HashTableStats {
+
+    private final int size;
+    private final int capacity;
+    private final int tombstones;
+    private final long sampledLookups;
+    private final double averageProbeLength;
+    private final int maxProbeLength;
+    private final long rehashCount;
+    private final long rehashNanos;
+    private final int[] chainLengths;
+
+    HashTableStats(int size, int capacity, int tombstones, StatsRecorder recorder, int[] chainLengths) {
+        this.size = size;
+        this.capacity = capacity;
+        this.tombstones = tombstones;
+        this.chainLengths = chainLengths;
+        if (recorder == null) {
+            this.sampledLookups = 0;
+            this.averageProbeLength = 0;
+            this.maxProbeLength = 0;
+            this.rehashCount = 0;
+            this.rehashNanos = 0;
+        } else {
+            this.sampledLookups = recorder.sampledLookups();
+            this.averageProbeLength = recorder.averageProbes();
+            this.maxProbeLength = recorder.maxProbes();
+            this.rehashCount = recorder.rehashes();
+            this.rehashNanos = recorder.rehashNanos();
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of buckets.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the ratio between entries and buckets.
+     */
+    public double getLoadFactor() {
+        return (capacity == 0) ? 0 : (double) size / capacity;
+    }
+
+    /**
+     * Returns the number of buckets marked as removed, always 0 in separate
+     * chaining maps.
+     */
+    public int getTombstones() {
+        return tombstones;
+    }
+
+    /**
+     * Returns how many lookups were sampled to compute the probe lengths.
+     */
+    public long getSampledLookups() {
+        return sampledLookups;
+    }
+
+    /**
+     * Returns the average number of probes of the sampled lookups.
+     */
+    public double getAverageProbeLength() {
+        return averageProbeLength;
+    }
+
+    /**
+     * Returns the maximum number of probes of the sampled lookups.
+     */
+    public int getMaxProbeLength() {
+        return maxProbeLength;
+    }
+
+    /**
+     * Returns how many times the bucket array was rebuilt.
+     */
+    public long getRehashCount() {
+        return rehashCount;
+    }
+
+    /**
+     * Returns the total time spent rebuilding the bucket array, in nanoseconds.
+     */
+    public long getRehashNanos() {
+        return rehashNanos;
+    }
+
+    /**
+     * Returns the histogram of chain lengths: element k is the number of chains
+     * of length k. In separate chaining maps a chain is a bucket, so element 0
+     * counts the empty buckets. In open addressing maps the chain of an entry is
+     * its probe sequence up to its bucket, so element k counts the entries that a
+     * lookup finds after k probes.
+     */
+    public int[] getChainLengthHistogram() {
+        return chainLengths.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "HashTableStats{size=" + size + ", capacity=" + capacity
+                + ", loadFactor=" + String.format("%.3f", getLoadFactor())
+                + ", tombstones=" + tombstones
+                + ", averageProbeLength=" + String.format("%.2f", averageProbeLength)
+                + ", maxProbeLength=" + maxProbeLength
+                + ", rehashCount=" + rehashCount
+                + ", rehashNanos=" + rehashNanos
+                + ", chainLengths=" + Arrays.toString(chainLengths) + "}";
+    }
+}
@@ -0,0 +1,253 @@
+package material.maps;
+
+/**
+ * Open addressing hash table specialized for int keys. Keys are stored in a
+ * plain int array and values in a parallel array, so no entry objects are
+ * created and keys are never boxed when getInt, putInt, removeInt and
+ * containsKey are used. The probe loop runs over the int array; the
+ * bookkeeping of values and tombstones is that of
+ * {@link AbstractPrimitiveHashTableMap}.
+ *
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class IntHashTableMap<V> extends AbstractPrimitiveHashTableMap<Integer, V> {
+
+    private static final class IntEntry<U> implements Entry<Integer, U> {
+
+        private final int key;
+        private final U value;
+
+        IntEntry(int key, U value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + "," + value + ")";
+        }
+    }
+
+    /**
+     * Cursor that also reads the keys as primitives, so a full scan doesn't box
+     * them.
+     *
+     * @param <V> The stored value
+     */
+    public interface IntCursor<V> extends Cursor<Integer, V> {
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @throws IllegalStateException if the cursor is not on an entry
+         */
+        int intKey() throws IllegalStateException;
+    }
+
+    private int[] keys;
+
+    /**
+     * Creates a hash table with capacity 1024 and linear probing.
+     */
+    public IntHashTableMap() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and linear probing.
+     *
+     * @param cap initial capacity (rounded up to a power of two)
+     */
+    public IntHashTableMap(int cap) {
+        this(cap, ProbingStrategy.LINEAR);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and probe sequence.
+     *
+     * @param cap     initial capacity (rounded up to a power of two)
+     * @param probing probe sequence used to resolve collisions
+     */
+    public IntHashTableMap(int cap, ProbingStrategy probing) {
+        super(cap, probing);
+        this.keys = new int[capacity];
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <V> IntHashTableMap<V> withExpectedSize(int expectedSize) {
+        return new IntHashTableMap<>(Math.max(2 * expectedSize, 2));
+    }
+
+    @Override
+    Object keyArray() {
+        return keys;
+    }
+
+    @Override
+    long keyAt(Object keyArray, int index) {
+        return ((int[]) keyArray)[index];
+    }
+
+    @Override
+    Integer boxKey(long key) {
+        return (int) key;
+    }
+
+    @Override
+    Entry<Integer, V> newEntry(long key, V value) {
+        return new IntEntry<>((int) key, value);
+    }
+
+    /**
+     * Looks for a key other than 0. Returns the index where it was found, or
+     * -(index + 1) where index is the first empty or removed bucket it could be
+     * placed in, or NO_SLOT if the probe sequence reaches none.
+     */
+    private int findSlot(int key) {
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        int hash = Integer.hashCode(key);
+        int mask = capacity - 1;
+        int hashValue = hashValue(hash);
+        int step = probing.step(hash, capacity); // 0 if the probes are not evenly spaced
+        int index = hashValue;
+        int avail = -1;
+        int retry = 0;
+        do {
+            int k = keys[index];
+            if (k == key) {
+                return index;
+            }
+            if (k == FREE) {
+                if (avail < 0) {
+                    avail = index;
+                }
+                if (values[index] != TOMBSTONE) {
+                    break; // an empty bucket ends the probe sequence
+                }
+            }
+            retry++;
+            index = (step != 0) ? (index + step) & mask
+                    : (hashValue + probing.offset(hash, retry, capacity)) & mask;
+        } while (retry < capacity);
+        return (avail < 0) ? NO_SLOT : -(avail + 1);
+    }
+
+    @Override
+    boolean rehashKeys(Object[] oldValues) {
+        int[] oldKeys = keys;
+        keys = new int[capacity];
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key != FREE) {
+                int i = findSlot(key); // keys are unique, so this is an empty bucket
+                if (i == NO_SLOT) {
+                    keys = oldKeys;
+                    return false;
+                }
+                keys[-(i + 1)] = key;
+                values[-(i + 1)] = oldValues[j];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of a key, or null if it is not in the map.
+     */
+    public V getInt(int key) {
+        if (key == FREE) {
+            return zeroValue();
+        }
+        int i = findSlot(key);
+        return (i >= 0) ? valueAt(i) : null;
+    }
+
+    /**
+     * Associates a value with a key and returns the previous value, or null.
+     */
+    public V putInt(int key, V value) {
+        if (key == FREE) {
+            return putZero(value);
+        }
+        int i = findSlot(key);
+        if (i >= 0) {
+            return replaceValue(i, value);
+        }
+        while (mustGrow(i)) {
+            rehash(capacity * 2);
+            i = findSlot(key);
+        }
+        keys[-(i + 1)] = key;
+        insertValue(-(i + 1), value);
+        return null;
+    }
+
+    /**
+     * Removes a key and returns its value, or null if it was not in the map.
+     */
+    public V removeInt(int key) {
+        if (key == FREE) {
+            return removeZero();
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        keys[i] = FREE;
+        return removeValueAt(i);
+    }
+
+    /**
+     * Returns whether the key is in the map.
+     */
+    public boolean containsKey(int key) {
+        return (key == FREE) ? hasZeroKey() : findSlot(key) >= 0;
+    }
+
+    @Override
+    public V get(Integer key) throws IllegalStateException {
+        checkKey(key);
+        return getInt(key);
+    }
+
+    @Override
+    public V put(Integer key, V value) throws IllegalStateException {
+        checkKey(key);
+        return putInt(key, value);
+    }
+
+    @Override
+    public V remove(Integer key) throws IllegalStateException {
+        checkKey(key);
+        return removeInt(key);
+    }
+
+    @Override
+    public IntCursor<V> cursor() {
+        class IntSlotCursor extends SlotCursor implements IntCursor<V> {
+            @Override
+            public int intKey() {
+                return (int) rawKey();
+            }
+        }
+        return new IntSlotCursor();
+    }
+
+}
@@ -0,0 +1,253 @@
+package material.maps;
+
+/**
+ * Open addressing hash table specialized for long keys. Keys are stored in a
+ * plain long array and values in a parallel array, so no entry objects are
+ * created and keys are never boxed when getLong, putLong, removeLong and
+ * containsKey are used. The probe loop runs over the long array; the
+ * bookkeeping of values and tombstones is that of
+ * {@link AbstractPrimitiveHashTableMap}.
+ *
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class LongHashTableMap<V> extends AbstractPrimitiveHashTableMap<Long, V> {
+
+    private static final class LongEntry<U> implements Entry<Long, U> {
+
+        private final long key;
+        private final U value;
+
+        LongEntry(long key, U value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Long getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + "," + value + ")";
+        }
+    }
+
+    /**
+     * Cursor that also reads the keys as primitives, so a full scan doesn't box
+     * them.
+     *
+     * @param <V> The stored value
+     */
+    public interface LongCursor<V> extends Cursor<Long, V> {
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @throws IllegalStateException if the cursor is not on an entry
+         */
+        long longKey() throws IllegalStateException;
+    }
+
+    private long[] keys;
+
+    /**
+     * Creates a hash table with capacity 1024 and linear probing.
+     */
+    public LongHashTableMap() {
+        this(1024);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and linear probing.
+     *
+     * @param cap initial capacity (rounded up to a power of two)
+     */
+    public LongHashTableMap(int cap) {
+        this(cap, ProbingStrategy.LINEAR);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and probe sequence.
+     *
+     * @param cap     initial capacity (rounded up to a power of two)
+     * @param probing probe sequence used to resolve collisions
+     */
+    public LongHashTableMap(int cap, ProbingStrategy probing) {
+        super(cap, probing);
+        this.keys = new long[capacity];
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public static <V> LongHashTableMap<V> withExpectedSize(int expectedSize) {
+        return new LongHashTableMap<>(Math.max(2 * expectedSize, 2));
+    }
+
+    @Override
+    Object keyArray() {
+        return keys;
+    }
+
+    @Override
+    long keyAt(Object keyArray, int index) {
+        return ((long[]) keyArray)[index];
+    }
+
+    @Override
+    Long boxKey(long key) {
+        return key;
+    }
+
+    @Override
+    Entry<Long, V> newEntry(long key, V value) {
+        return new LongEntry<>(key, value);
+    }
+
+    /**
+     * Looks for a key other than 0. Returns the index where it was found, or
+     * -(index + 1) where index is the first empty or removed bucket it could be
+     * placed in, or NO_SLOT if the probe sequence reaches none.
+     */
+    private int findSlot(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        int hash = Long.hashCode(key);
+        int mask = capacity - 1;
+        int hashValue = hashValue(hash);
+        int step = probing.step(hash, capacity); // 0 if the probes are not evenly spaced
+        int index = hashValue;
+        int avail = -1;
+        int retry = 0;
+        do {
+            long k = keys[index];
+            if (k == key) {
+                return index;
+            }
+            if (k == FREE) {
+                if (avail < 0) {
+                    avail = index;
+                }
+                if (values[index] != TOMBSTONE) {
+                    break; // an empty bucket ends the probe sequence
+                }
+            }
+            retry++;
+            index = (step != 0) ? (index + step) & mask
+                    : (hashValue + probing.offset(hash, retry, capacity)) & mask;
+        } while (retry < capacity);
+        return (avail < 0) ? NO_SLOT : -(avail + 1);
+    }
+
+    @Override
+    boolean rehashKeys(Object[] oldValues) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != FREE) {
+                int i = findSlot(key); // keys are unique, so this is an empty bucket
+                if (i == NO_SLOT) {
+                    keys = oldKeys;
+                    return false;
+                }
+                keys[-(i + 1)] = key;
+                values[-(i + 1)] = oldValues[j];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of a key, or null if it is not in the map.
+     */
+    public V getLong(long key) {
+        if (key == FREE) {
+            return zeroValue();
+        }
+        int i = findSlot(key);
+        return (i >= 0) ? valueAt(i) : null;
+    }
+
+    /**
+     * Associates a value with a key and returns the previous value, or null.
+     */
+    public V putLong(long key, V value) {
+        if (key == FREE) {
+            return putZero(value);
+        }
+        int i = findSlot(key);
+        if (i >= 0) {
+            return replaceValue(i, value);
+        }
+        while (mustGrow(i)) {
+            rehash(capacity * 2);
+            i = findSlot(key);
+        }
+        keys[-(i + 1)] = key;
+        insertValue(-(i + 1), value);
+        return null;
+    }
+
+    /**
+     * Removes a key and returns its value, or null if it was not in the map.
+     */
+    public V removeLong(long key) {
+        if (key == FREE) {
+            return removeZero();
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        keys[i] = FREE;
+        return removeValueAt(i);
+    }
+
+    /**
+     * Returns whether the key is in the map.
+     */
+    public boolean containsKey(long key) {
+        return (key == FREE) ? hasZeroKey() : findSlot(key) >= 0;
+    }
+
+    @Override
+    public V get(Long key) throws IllegalStateException {
+        checkKey(key);
+        return getLong(key);
+    }
+
+    @Override
+    public V put(Long key, V value) throws IllegalStateException {
+        checkKey(key);
+        return putLong(key, value);
+    }
+
+    @Override
+    public V remove(Long key) throws IllegalStateException {
+        checkKey(key);
+        return removeLong(key);
+    }
+
+    @Override
+    public LongCursor<V> cursor() {
+        class LongSlotCursor extends SlotCursor implements LongCursor<V> {
+            @Override
+            public long longKey() {
+                return rawKey();
+            }
+        }
+        return new LongSlotCursor();
+    }
+
+}
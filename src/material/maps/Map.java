@@ -1,5 +1,12 @@
 package material.maps;
 
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An interface for a map which binds a key uniquely to a value.
@@ -39,6 +46,16 @@ public interface Map<K, V> extends Iterable<Entry<K, V>> {
      */
     V remove(K key) throws IllegalStateException;
 
+    /**
+     * Copies all the entries of the given map into this map. Keys already
+     * present get the value of the other map.
+     */
+    default void putAll(Map<? extends K, ? extends V> other) throws IllegalStateException {
+        for (Entry<? extends K, ? extends V> e : other) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
     /**
      * Returns an iterable object containing all the keys in the map.
      */
@@ -53,4 +70,87 @@ public interface Map<K, V> extends Iterable<Entry<K, V>> {
      * Returns an iterable object containing all the entries in the map.
      */
     Iterable<Entry<K, V>> entries();
+
+    /**
+     * Performs the given action for every key and value of the map. The hash
+     * maps walk their arrays directly, without creating iterators or entries.
+     */
+    default void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> e : this) {
+            action.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Performs the given action for every key of the map.
+     */
+    default void forEachKey(Consumer<? super K> action) {
+        forEachEntry((key, value) -> action.accept(key));
+    }
+
+    /**
+     * Performs the given action for every value of the map.
+     */
+    default void forEachValue(Consumer<? super V> action) {
+        forEachEntry((key, value) -> action.accept(value));
+    }
+
+    /**
+     * Returns a spliterator over the entries of the map. The default one takes
+     * its elements from the iterator; the hash maps split their bucket arrays
+     * by range instead, so parallel streams scale with the number of cores.
+     */
+    @Override
+    default Spliterator<Entry<K, V>> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns a sequential stream of the entries of the map.
+     */
+    default Stream<Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel stream of the entries of the map. The map must
+     * not be modified while the stream runs.
+     */
+    default Stream<Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Returns a cursor over the entries of the map. The hash maps return
+     * cursors that read their arrays directly, so a full scan creates no
+     * object other than the cursor itself.
+     */
+    default Cursor<K, V> cursor() {
+        Iterator<Entry<K, V>> it = iterator();
+        return new Cursor<K, V>() {
+            private Entry<K, V> current;
+
+            @Override
+            public boolean advance() {
+                current = it.hasNext() ? it.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public K key() {
+                if (current == null) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+                return current.getKey();
+            }
+
+            @Override
+            public V value() {
+                if (current == null) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+                return current.getValue();
+            }
+        };
+    }
 }
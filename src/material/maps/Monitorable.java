@@ -0,0 +1,32 @@
+package material.maps;
+
+/**
+ * A hash table that can keep statistics about its lookups and rehashes.
+ * Statistics are disabled by default. They can be read with
+ * {@link #getStatistics()} or published through JMX with {@link HashTableMonitor}.
+ *
+ * @author vlt23
+ */
+public interface Monitorable {
+
+    /**
+     * Enables or disables the statistics. Enabling them starts the counters
+     * from 0, disabling them drops the counters.
+     *
+     * @param enabled whether lookups and rehashes are counted
+     */
+    void setStatisticsEnabled(boolean enabled);
+
+    /**
+     * Returns whether the statistics are enabled.
+     */
+    boolean isStatisticsEnabled();
+
+    /**
+     * Takes a snapshot of the statistics. It walks the whole bucket array to
+     * build the chain length histogram.
+     *
+     * @return the current statistics
+     */
+    HashTableStats getStatistics();
+}
@@ -0,0 +1,733 @@
+package material.maps;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Open addressing hash table that keeps its entries outside the Java heap.
+ * Keys and values are serialized by a {@link Codec} and stored in direct byte
+ * buffers, so the heap footprint of the map doesn't depend on the number of
+ * entries and the garbage collector has no entry objects to trace.
+ *
+ * <p>The bucket array is a direct buffer of 12 byte slots: the hash code of the
+ * key and a reference to its record. Records are appended to direct buffers of
+ * growing size, called chunks, and hold the length of the key, the length of
+ * the value and the bytes of both. Keys are compared byte by byte against the
+ * encoded key being looked up, so they are never decoded during a lookup.</p>
+ *
+ * <p>The probe sequence is given by a {@link ProbingStrategy}, the capacity is a
+ * power of two and the load factor is kept less than or equal to 0.5, as in
+ * {@link IntHashTableMap}. Removed entries leave a mark in their slot and
+ * their record becomes garbage, as does the old record of a value replaced by
+ * one of a different length. Rehashing copies the live records to new chunks,
+ * which also happens when garbage outgrows the live records.</p>
+ *
+ * <p>Objects are created when entries are read: get returns a decoded copy of
+ * the value, not the object that was stored. Lookups encode the key into a
+ * buffer owned by the map, so not even concurrent reads are safe.</p>
+ *
+ * @param <K> The key
+ * @param <V> The stored value
+ * @author vlt23
+ */
+public class OffHeapHashTableMap<K, V> implements Map<K, V> {
+
+    private static final int SLOT = 12; // bytes of a slot: int hash, long reference
+    private static final int REF = 4; // position of the reference in a slot
+    private static final long FREE = 0; // reference of the empty slots
+    private static final long REMOVED = -1; // reference of the removed entries
+    private static final int HEADER = 8; // bytes of a record before the key: int key length, int value length
+    private static final int NULL_VALUE = -1; // value length of a null value
+    private static final int MIN_CHUNK = 1 << 12;
+    private static final int MAX_CHUNK = 1 << 30;
+    private static final int MAX_CAPACITY = 1 << 27; // the bucket array fits in a buffer
+    private static final int NO_SLOT = Integer.MIN_VALUE;
+
+    private static final class OffHeapEntry<T, U> implements Entry<T, U> {
+
+        private final T key;
+        private final U value;
+
+        OffHeapEntry(T key, U value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public T getKey() {
+            return key;
+        }
+
+        @Override
+        public U getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + key + "," + value + ")";
+        }
+    }
+
+    /**
+     * Walks the slots of the bucket array in use when the iterator was created,
+     * decoding every entry it returns.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private final ByteBuffer slots = index;
+        private final ByteBuffer[] chunkArray = chunks;
+        private final int end = capacity;
+        private int i = nextEntry(slots, 0, end);
+
+        abstract T element(ByteBuffer[] chunkArray, long ref);
+
+        @Override
+        public boolean hasNext() {
+            return i < end;
+        }
+
+        @Override
+        public T next() {
+            if (hasNext()) {
+                T toReturn = element(chunkArray, slots.getLong(i * SLOT + REF));
+                i = nextEntry(slots, i + 1, end);
+                return toReturn;
+            }
+            throw new IllegalStateException("The map has not more elements");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Splits the bucket array by range. Every spliterator reads through its own
+     * views of the buffers, so the ranges can be decoded in parallel.
+     */
+    private static class OffHeapSpliterator<T, U> extends BucketSpliterator<Entry<T, U>> {
+
+        private final Codec<T> keyCodec;
+        private final Codec<U> valueCodec;
+        private final ByteBuffer slots;
+        private final ByteBuffer[] chunkArray;
+
+        OffHeapSpliterator(Codec<T> keyCodec, Codec<U> valueCodec, ByteBuffer slots, ByteBuffer[] chunkArray,
+                           int origin, int fence, long est, int characteristics) {
+            super(origin, fence, est, characteristics);
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+            this.slots = slots.duplicate();
+            this.chunkArray = new ByteBuffer[chunkArray.length];
+            for (int c = 0; c < chunkArray.length && chunkArray[c] != null; c++) {
+                this.chunkArray[c] = chunkArray[c].duplicate();
+            }
+        }
+
+        @Override
+        BucketSpliterator<Entry<T, U>> split(int origin, int fence, long est, int characteristics) {
+            return new OffHeapSpliterator<>(keyCodec, valueCodec, slots, chunkArray, origin, fence, est,
+                    characteristics);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<T, U>> action) {
+            while (index < fence) {
+                long ref = slots.getLong(index++ * SLOT + REF);
+                if (ref > FREE) {
+                    action.accept(new OffHeapEntry<>(readKey(keyCodec, chunkArray, ref),
+                            readValue(valueCodec, chunkArray, ref)));
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final ProbingStrategy probing;
+    private ByteBuffer index; // bucket array
+    private int capacity;
+    private final int minCapacity;
+    private int n; // number of entries
+    private int tombstones;
+    private int scale; // random odd multiplier of the hash function
+    private ByteBuffer[] chunks = new ByteBuffer[4]; // records, the last one being filled
+    private int chunkCount;
+    private int top; // first free byte of the last chunk
+    private int nextChunk = MIN_CHUNK; // size of the next chunk
+    private long liveBytes; // bytes of the live records
+    private long garbageBytes; // bytes of dead records and unused chunk tails
+    private ByteBuffer keyBuffer = ByteBuffer.allocate(64); // encoded key of the current operation
+    private ByteBuffer valueBuffer = ByteBuffer.allocate(64); // encoded value of the current operation
+
+    /**
+     * Creates a hash table with capacity 1024 and linear probing.
+     *
+     * @param keyCodec   codec of the keys
+     * @param valueCodec codec of the values
+     */
+    public OffHeapHashTableMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(1024, keyCodec, valueCodec);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and linear probing.
+     *
+     * @param cap        initial capacity (rounded up to a power of two)
+     * @param keyCodec   codec of the keys
+     * @param valueCodec codec of the values
+     */
+    public OffHeapHashTableMap(int cap, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(cap, keyCodec, valueCodec, ProbingStrategy.LINEAR);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and probe sequence.
+     *
+     * @param cap        initial capacity (rounded up to a power of two)
+     * @param keyCodec   codec of the keys
+     * @param valueCodec codec of the values
+     * @param probing    probe sequence used to resolve collisions
+     */
+    public OffHeapHashTableMap(int cap, Codec<K> keyCodec, Codec<V> valueCodec, ProbingStrategy probing) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.probing = probing;
+        this.capacity = checkCapacity(AbstractHashTableMap.powerOfTwoAtLeast(Math.max(cap, 2)));
+        this.minCapacity = capacity;
+        this.index = ByteBuffer.allocateDirect(capacity * SLOT);
+        this.scale = new Random().nextInt() | 1;
+    }
+
+    /**
+     * Creates a hash table sized to hold the given number of entries without
+     * rehashing.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     * @param keyCodec     codec of the keys
+     * @param valueCodec   codec of the values
+     */
+    public static <K, V> OffHeapHashTableMap<K, V> withExpectedSize(int expectedSize, Codec<K> keyCodec,
+                                                                    Codec<V> valueCodec) {
+        return new OffHeapHashTableMap<>(Math.max(2 * expectedSize, 2), keyCodec, valueCodec);
+    }
+
+    private static int checkCapacity(int cap) {
+        if (cap > MAX_CAPACITY) {
+            throw new IllegalStateException("The map can't hold more entries.");
+        }
+        return cap;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns the number of bytes allocated outside the heap: the bucket array
+     * and the chunks of records, garbage included.
+     */
+    public long offHeapBytes() {
+        long bytes = index.capacity();
+        for (int c = 0; c < chunkCount; c++) {
+            bytes += chunks[c].capacity();
+        }
+        return bytes;
+    }
+
+    private int hashValue(int hash) {
+        int h = hash * scale;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    private static int chunkOf(long ref) {
+        return (int) ((ref - 1) >>> 32);
+    }
+
+    private static int offsetOf(long ref) {
+        return (int) (ref - 1);
+    }
+
+    private static int recordLength(ByteBuffer chunk, int offset) {
+        return HEADER + chunk.getInt(offset) + Math.max(chunk.getInt(offset + 4), 0);
+    }
+
+    private static <T> T readKey(Codec<T> codec, ByteBuffer[] chunkArray, long ref) {
+        ByteBuffer chunk = chunkArray[chunkOf(ref)];
+        int offset = offsetOf(ref);
+        int start = offset + HEADER;
+        chunk.limit(start + chunk.getInt(offset));
+        chunk.position(start);
+        T key = codec.decode(chunk);
+        chunk.clear(); // absolute accesses are checked against the limit
+        return key;
+    }
+
+    private static <T> T readValue(Codec<T> codec, ByteBuffer[] chunkArray, long ref) {
+        ByteBuffer chunk = chunkArray[chunkOf(ref)];
+        int offset = offsetOf(ref);
+        int length = chunk.getInt(offset + 4);
+        if (length == NULL_VALUE) {
+            return null;
+        }
+        int start = offset + HEADER + chunk.getInt(offset);
+        chunk.limit(start + length);
+        chunk.position(start);
+        T value = codec.decode(chunk);
+        chunk.clear();
+        return value;
+    }
+
+    /**
+     * Encodes an object into a buffer, or into a bigger one if it doesn't fit.
+     * Returns the buffer used, flipped so that it can be read.
+     */
+    private static <T> ByteBuffer encode(Codec<T> codec, T value, ByteBuffer buffer) {
+        while (true) {
+            buffer.clear();
+            try {
+                codec.encode(value, buffer);
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                if (buffer.capacity() > MAX_CHUNK / 2) {
+                    throw new IllegalStateException("The entry is too large.");
+                }
+                buffer = ByteBuffer.allocate(2 * buffer.capacity());
+            }
+        }
+    }
+
+    /**
+     * Returns whether the record of a reference has the given encoded key.
+     */
+    private boolean keyEquals(long ref, ByteBuffer key) {
+        ByteBuffer chunk = chunks[chunkOf(ref)];
+        int offset = offsetOf(ref);
+        int length = key.limit();
+        if (chunk.getInt(offset) != length) {
+            return false;
+        }
+        int start = offset + HEADER;
+        int j = 0;
+        for (; j + 8 <= length; j += 8) {
+            if (chunk.getLong(start + j) != key.getLong(j)) {
+                return false;
+            }
+        }
+        for (; j < length; j++) {
+            if (chunk.get(start + j) != key.get(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks for an encoded key. Returns the slot where it was found, or
+     * -(slot + 1) where slot is the first empty or removed one it could be
+     * placed in, or {@link #NO_SLOT} if the probe sequence reaches none.
+     */
+    private int findSlot(int hash, ByteBuffer key) {
+        int avail = -1;
+        int hashValue = hashValue(hash);
+        int step = probing.step(hash, capacity); // 0 if the probes are not evenly spaced
+        int i = hashValue;
+        int retry = 0;
+        do {
+            long ref = index.getLong(i * SLOT + REF);
+            if (ref == FREE) {
+                if (avail < 0) {
+                    avail = i;
+                }
+                break; // an empty slot ends the probe sequence
+            }
+            if (ref == REMOVED) {
+                if (avail < 0) {
+                    avail = i;
+                }
+            } else if (index.getInt(i * SLOT) == hash && keyEquals(ref, key)) {
+                return i;
+            }
+            retry++;
+            i = (step != 0) ? (i + step) & (capacity - 1)
+                    : (hashValue + probing.offset(hash, retry, capacity)) & (capacity - 1);
+        } while (retry < capacity);
+        return (avail < 0) ? NO_SLOT : -(avail + 1);
+    }
+
+    private long ref(int i) {
+        return index.getLong(i * SLOT + REF);
+    }
+
+    private void setSlot(int i, int hash, long ref) {
+        index.putInt(i * SLOT, hash);
+        index.putLong(i * SLOT + REF, ref);
+    }
+
+    @Override
+    public V get(K key) {
+        checkKey(key);
+        keyBuffer = encode(keyCodec, key, keyBuffer);
+        int i = findSlot(key.hashCode(), keyBuffer);
+        return (i >= 0) ? readValue(valueCodec, chunks, ref(i)) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkKey(key);
+        int hash = key.hashCode();
+        keyBuffer = encode(keyCodec, key, keyBuffer);
+        int valueLength = NULL_VALUE;
+        if (value != null) {
+            valueBuffer = encode(valueCodec, value, valueBuffer);
+            valueLength = valueBuffer.limit();
+        }
+        int i = findSlot(hash, keyBuffer);
+        if (i >= 0) {
+            long ref = ref(i);
+            V toReturn = readValue(valueCodec, chunks, ref);
+            ByteBuffer chunk = chunks[chunkOf(ref)];
+            int offset = offsetOf(ref);
+            if (chunk.getInt(offset + 4) == valueLength) {
+                if (value != null) { // same length, overwrite the old value
+                    chunk.put(offset + HEADER + keyBuffer.limit(), valueBuffer, 0, valueLength);
+                }
+            } else {
+                index.putLong(i * SLOT + REF, append(keyBuffer, valueLength));
+                release(chunk, offset);
+                if (garbageBytes > Math.max(liveBytes, MIN_CHUNK)) {
+                    rehash(capacity); // as in remove, drop the replaced records
+                }
+            }
+            return toReturn;
+        }
+        while (n >= capacity / 2 || i == NO_SLOT) {
+            rehash(capacity * 2);
+            i = findSlot(hash, keyBuffer);
+        }
+        int slot = -(i + 1);
+        if (ref(slot) == REMOVED) {
+            tombstones--;
+        }
+        setSlot(slot, hash, append(keyBuffer, valueLength));
+        n++;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other) {
+        ensureCapacity(n + other.size());
+        for (Entry<? extends K, ? extends V> e : other) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Appends a record with an encoded key and the encoded value in valueBuffer,
+     * and returns its reference.
+     */
+    private long append(ByteBuffer key, int valueLength) {
+        int keyLength = key.limit();
+        int length = HEADER + keyLength + Math.max(valueLength, 0);
+        ByteBuffer chunk = reserve(length);
+        chunk.putInt(top, keyLength);
+        chunk.putInt(top + 4, valueLength);
+        chunk.put(top + HEADER, key, 0, keyLength);
+        if (valueLength > 0) {
+            chunk.put(top + HEADER + keyLength, valueBuffer, 0, valueLength);
+        }
+        long ref = (((long) (chunkCount - 1) << 32) | top) + 1;
+        top += length;
+        liveBytes += length;
+        return ref;
+    }
+
+    /**
+     * Returns the last chunk, after allocating a new one if the last one has not
+     * the given number of free bytes.
+     */
+    private ByteBuffer reserve(int length) {
+        if (chunkCount > 0 && top + length <= chunks[chunkCount - 1].capacity()) {
+            return chunks[chunkCount - 1];
+        }
+        if (length > MAX_CHUNK) {
+            throw new IllegalStateException("The entry is too large.");
+        }
+        if (chunkCount > 0) {
+            garbageBytes += chunks[chunkCount - 1].capacity() - top;
+        }
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, 2 * chunkCount);
+        }
+        ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(nextChunk, length));
+        chunks[chunkCount++] = chunk;
+        top = 0;
+        nextChunk = (int) Math.min(2L * nextChunk, MAX_CHUNK);
+        return chunk;
+    }
+
+    /**
+     * Turns a record into garbage.
+     */
+    private void release(ByteBuffer chunk, int offset) {
+        int length = recordLength(chunk, offset);
+        liveBytes -= length;
+        garbageBytes += length;
+    }
+
+    @Override
+    public V remove(K key) {
+        checkKey(key);
+        keyBuffer = encode(keyCodec, key, keyBuffer);
+        int i = findSlot(key.hashCode(), keyBuffer);
+        if (i < 0) {
+            return null;
+        }
+        long ref = ref(i);
+        V toReturn = readValue(valueCodec, chunks, ref);
+        release(chunks[chunkOf(ref)], offsetOf(ref));
+        index.putLong(i * SLOT + REF, REMOVED);
+        n--;
+        tombstones++;
+        if (n < capacity / 8 && capacity / 2 >= minCapacity) {
+            rehash(capacity / 2);
+        } else if (n + tombstones > capacity - capacity / 4 || garbageBytes > Math.max(liveBytes, MIN_CHUNK)) {
+            rehash(capacity); // same capacity, just drop the tombstones and the garbage
+        }
+        return toReturn;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new SlotIterator<Entry<K, V>>() {
+            @Override
+            Entry<K, V> element(ByteBuffer[] chunkArray, long ref) {
+                return new OffHeapEntry<>(readKey(keyCodec, chunkArray, ref), readValue(valueCodec, chunkArray, ref));
+            }
+        };
+    }
+
+    @Override
+    public Iterable<K> keys() {
+        return () -> new SlotIterator<K>() {
+            @Override
+            K element(ByteBuffer[] chunkArray, long ref) {
+                return readKey(keyCodec, chunkArray, ref);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<V> values() {
+        return () -> new SlotIterator<V>() {
+            @Override
+            V element(ByteBuffer[] chunkArray, long ref) {
+                return readValue(valueCodec, chunkArray, ref);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Entry<K, V>> entries() {
+        return this::iterator;
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        ByteBuffer slots = index;
+        ByteBuffer[] chunkArray = chunks;
+        for (int i = nextEntry(slots, 0, capacity); i < capacity; i = nextEntry(slots, i + 1, capacity)) {
+            long ref = slots.getLong(i * SLOT + REF);
+            action.accept(readKey(keyCodec, chunkArray, ref), readValue(valueCodec, chunkArray, ref));
+        }
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new OffHeapSpliterator<>(keyCodec, valueCodec, index, chunks, 0, capacity, n,
+                Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Cursor<K, V> cursor() {
+        return new Cursor<K, V>() {
+            private final ByteBuffer slots = index;
+            private final ByteBuffer[] chunkArray = chunks;
+            private final int end = capacity;
+            private int i = -1;
+
+            @Override
+            public boolean advance() {
+                if (i < end) {
+                    i = nextEntry(slots, i + 1, end);
+                }
+                return i < end;
+            }
+
+            @Override
+            public K key() {
+                return readKey(keyCodec, chunkArray, ref());
+            }
+
+            @Override
+            public V value() {
+                return readValue(valueCodec, chunkArray, ref());
+            }
+
+            private long ref() {
+                if (i < 0 || i >= end) {
+                    throw new IllegalStateException("The cursor is not on an entry.");
+                }
+                return slots.getLong(i * SLOT + REF);
+            }
+        };
+    }
+
+    /**
+     * Returns the first slot from i on that holds an entry, or end.
+     */
+    private static int nextEntry(ByteBuffer slots, int i, int end) {
+        while (i < end && slots.getLong(i * SLOT + REF) <= FREE) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Determines whether a key is valid.
+     *
+     * @param k Key
+     */
+    protected void checkKey(K k) {
+        if (k == null) {
+            throw new IllegalStateException("Invalid key: null.");
+        }
+    }
+
+    /**
+     * Grows the bucket array, if needed, so that it holds the given number of
+     * entries without any further rehash.
+     *
+     * @param expectedSize number of entries the map is expected to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (2L * expectedSize > capacity) {
+            rehash(2 * expectedSize);
+        }
+    }
+
+    /**
+     * Shrinks the bucket array to the smallest capacity that keeps the load
+     * factor less than or equal to 0.5, regardless of the initial capacity, and
+     * drops the garbage.
+     */
+    public void trimToSize() {
+        rehash(Math.max(2 * n, 2));
+    }
+
+    /**
+     * Moves the entries to a new bucket array of the given capacity, rounded up
+     * to a power of two, with a new hash function. The live records are copied
+     * to new chunks, which drops the tombstones and the garbage.
+     */
+    private void rehash(int newCapacity) {
+        newCapacity = checkCapacity(AbstractHashTableMap.powerOfTwoAtLeast(newCapacity));
+        if (newCapacity < 2 * n) {
+            return;
+        }
+        ByteBuffer oldIndex = index;
+        int oldCapacity = capacity;
+        ByteBuffer[] oldChunks = chunks;
+        int oldChunkCount = chunkCount;
+        int oldTop = top;
+        long oldLive = liveBytes;
+        long oldGarbage = garbageBytes;
+        int oldNextChunk = nextChunk;
+        int oldTombstones = tombstones;
+        int oldScale = scale;
+        capacity = newCapacity;
+        index = ByteBuffer.allocateDirect(capacity * SLOT);
+        chunks = new ByteBuffer[4];
+        chunkCount = 0;
+        top = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+        nextChunk = (int) Math.max(MIN_CHUNK, Math.min(oldLive, MAX_CHUNK)); // the live records fit in one chunk
+        tombstones = 0;
+        scale = new Random().nextInt() | 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            long ref = oldIndex.getLong(j * SLOT + REF);
+            if (ref > FREE) {
+                int hash = oldIndex.getInt(j * SLOT);
+                int i = freeSlot(hash);
+                if (i == NO_SLOT) { // the probe sequence can't place every key, try a bigger table
+                    index = oldIndex;
+                    capacity = oldCapacity;
+                    chunks = oldChunks;
+                    chunkCount = oldChunkCount;
+                    top = oldTop;
+                    liveBytes = oldLive;
+                    garbageBytes = oldGarbage;
+                    nextChunk = oldNextChunk;
+                    tombstones = oldTombstones;
+                    scale = oldScale;
+                    rehash(newCapacity * 2);
+                    return;
+                }
+                setSlot(i, hash, copy(oldChunks[chunkOf(ref)], offsetOf(ref)));
+            }
+        }
+    }
+
+    /**
+     * Returns the first empty slot in the probe sequence of a hash code, or
+     * {@link #NO_SLOT}. Only used while rehashing, when there are no removed
+     * entries and every key is known to be new.
+     */
+    private int freeSlot(int hash) {
+        int hashValue = hashValue(hash);
+        int step = probing.step(hash, capacity);
+        int i = hashValue;
+        int retry = 0;
+        do {
+            if (index.getLong(i * SLOT + REF) == FREE) {
+                return i;
+            }
+            retry++;
+            i = (step != 0) ? (i + step) & (capacity - 1)
+                    : (hashValue + probing.offset(hash, retry, capacity)) & (capacity - 1);
+        } while (retry < capacity);
+        return NO_SLOT;
+    }
+
+    /**
+     * Copies a record to the last chunk and returns its new reference.
+     */
+    private long copy(ByteBuffer from, int offset) {
+        int length = recordLength(from, offset);
+        ByteBuffer chunk = reserve(length);
+        chunk.put(top, from, offset, length);
+        long ref = (((long) (chunkCount - 1) << 32) | top) + 1;
+        top += length;
+        liveBytes += length;
+        return ref;
+    }
+
+}
@@ -0,0 +1,96 @@
+package material.maps;
+
+/**
+ * Probe sequences of the open addressing maps. Every strategy computes the
+ * offset that is added to the home bucket of a key after its i-th collision.
+ * Strategies whose probes are evenly spaced also give that distance through
+ * {@link #step(int, int)}, so it can be computed once per lookup.
+ *
+ * @author vlt23
+ */
+public enum ProbingStrategy {
+
+    /**
+     * Consecutive buckets: offset i.
+     */
+    LINEAR {
+        @Override
+        public int offset(int hash, int i, int capacity) {
+            return i;
+        }
+
+        @Override
+        public int step(int hash, int capacity) {
+            return 1;
+        }
+    },
+    /**
+     * Quadratic probing: offset 7i + 11i^2 mod capacity. It is not guaranteed
+     * to visit every bucket.
+     */
+    QUADRATIC {
+        @Override
+        public int offset(int hash, int i, int capacity) {
+            long c1 = 7;
+            long c2 = 11;
+            return (int) ((c1 * i + c2 * i * i) % capacity);
+        }
+    },
+    /**
+     * Quadratic probing with triangular numbers: offset i(i+1)/2, so the i-th
+     * probe is i buckets after the previous one. The first capacity probes visit
+     * every bucket when the capacity is a power of two, and only then.
+     */
+    TRIANGULAR {
+        @Override
+        public int offset(int hash, int i, int capacity) {
+            return (i * (i + 1)) >>> 1; // exact modulo 2^31, enough for a power-of-two mask
+        }
+    },
+    /**
+     * Double hashing: offset i * s, where the step s comes from a second hash of
+     * the key. The step is odd if the capacity is a power of two and between 1
+     * and capacity - 1 otherwise, so the probe sequence visits every bucket when
+     * the capacity is a power of two or a prime.
+     */
+    DOUBLE {
+        @Override
+        public int offset(int hash, int i, int capacity) {
+            return (int) ((long) i * step(hash, capacity) % capacity);
+        }
+
+        @Override
+        public int step(int hash, int capacity) {
+            // independent of the home bucket, which comes from the low bits of another hash
+            int h = Integer.rotateLeft(hash * 0x9E3779B9, 16) & Integer.MAX_VALUE;
+            if ((capacity & (capacity - 1)) == 0) {
+                return (h & (capacity - 1)) | 1;
+            }
+            return 1 + h % (capacity - 1);
+        }
+    };
+
+    /**
+     * Returns the offset to be added to the start index of a key. It is 0 for
+     * i=0, since that means the key hasn't had any collision yet.
+     *
+     * @param hash     hash code of the key
+     * @param i        number of times the key has caused a collision
+     * @param capacity capacity of the bucket array
+     * @return the offset to be added to the start index
+     */
+    public abstract int offset(int hash, int i, int capacity);
+
+    /**
+     * Returns the distance between consecutive probes of a key, or 0 if the
+     * probes are not evenly spaced and {@link #offset(int, int, int)} has to be
+     * used for every one.
+     *
+     * @param hash     hash code of the key
+     * @param capacity capacity of the bucket array
+     * @return a step between 1 and capacity, or 0
+     */
+    public int step(int hash, int capacity) {
+        return 0;
+    }
+}
@@ -0,0 +1,70 @@
+package material.maps;
+
+/**
+ * Counters behind the statistics of a {@link Monitorable} map. Only one out of
+ * every {@link #SAMPLE_RATE} lookups records its probe length, so leaving the
+ * statistics enabled costs an increment and a test per lookup.
+ *
+ * @author vlt23
+ */
+final class StatsRecorder {
+
+    static final int SAMPLE_RATE = 64; // a power of two
+
+    private long lookups;
+    private long sampledLookups;
+    private long sampledProbes;
+    private int maxProbes;
+    private long rehashes;
+    private long rehashNanos;
+
+    /**
+     * Returns whether the current lookup is sampled. A sampled lookup must be
+     * followed by a call to {@link #recordProbes(int)}.
+     */
+    boolean sampleNext() {
+        return (++lookups & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    void recordProbes(int probes) {
+        sampledLookups++;
+        sampledProbes += probes;
+        if (probes > maxProbes) {
+            maxProbes = probes;
+        }
+    }
+
+    /**
+     * Counts a lookup that took the given number of probes.
+     */
+    void lookup(int probes) {
+        if (sampleNext()) {
+            recordProbes(probes);
+        }
+    }
+
+    void recordRehash(long nanos) {
+        rehashes++;
+        rehashNanos += nanos;
+    }
+
+    long sampledLookups() {
+        return sampledLookups;
+    }
+
+    double averageProbes() {
+        return (sampledLookups == 0) ? 0 : (double) sampledProbes / sampledLookups;
+    }
+
+    int maxProbes() {
+        return maxProbes;
+    }
+
+    long rehashes() {
+        return rehashes;
+    }
+
+    long rehashNanos() {
+        return rehashNanos;
+    }
+}
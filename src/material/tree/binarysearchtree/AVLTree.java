@@ -15,10 +15,11 @@ import java.util.List;
  */
 public class AVLTree<E> implements BinarySearchTree<E> {
 
-    // We need this class to store the height of each BTNode
+    // We need this class to store the height and the subtree size of each BTNode
     private static class AVLInfo<T> implements Comparable<AVLInfo<T>>, Position<T> {
 
         private int height;
+        private int size;
         private T element;
         private Position<AVLInfo<T>> pos;
 
@@ -26,6 +27,7 @@ public class AVLTree<E> implements BinarySearchTree<E> {
             this.element = element;
             this.pos = null;
             this.height = 1;
+            this.size = 1;
         }
 
         public void setTreePosition(Position<AVLInfo<T>> pos) {
@@ -45,6 +47,14 @@ public class AVLTree<E> implements BinarySearchTree<E> {
             return height;
         }
 
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
         public T getElement() {
             return element;
         }
@@ -94,6 +104,7 @@ public class AVLTree<E> implements BinarySearchTree<E> {
 
     private LinkedBinarySearchTree<AVLInfo<E>> bst;
     private ReestructurableBinaryTree<AVLInfo<E>> resBT;
+    private final Comparator<E> comparator;
 
     public AVLTree() {
         this(new DefaultComparator<>());
@@ -105,6 +116,7 @@ public class AVLTree<E> implements BinarySearchTree<E> {
      * @param c the comparator used to sort the nodes in the tree
      */
     public AVLTree(Comparator<E> c) {
+        comparator = c;
         Comparator<AVLInfo<E>> avlComparator = (o1, o2) -> c.compare(o1.getElement(), o2.getElement());
         bst = new LinkedBinarySearchTree<>(avlComparator);
         resBT = new ReestructurableBinaryTree<>();
@@ -197,19 +209,34 @@ public class AVLTree<E> implements BinarySearchTree<E> {
         p.getElement().setHeight(1 + Math.max(leftHeight, rightHeight));
     }
 
+    /**
+     * Returns the number of nodes in the subtree rooted at p.
+     */
+    private int size(Position<AVLInfo<E>> p) {
+        return (p.getElement() == null) ? 0 : p.getElement().getSize();
+    }
+
+    private void calculateSize(Position<AVLInfo<E>> p) {
+        p.getElement().setSize(1 + size(bst.binTree.left(p)) + size(bst.binTree.right(p)));
+    }
+
     /**
      * Rebalance method called by insert and remove. Traverses the path from p
      * to the root. For each node encountered, we recompute its height and
-     * perform a trinode restructuring if it's unbalanced.
+     * size and perform a trinode restructuring if it's unbalanced. Every node
+     * whose subtree changed is on this path, including the one swapped by
+     * getLeafToRemove, so the sizes stay right.
      */
     private void rebalance(Position<AVLInfo<E>> zPos) {
         if (bst.binTree.isInternal(zPos)) {
             calculateHeight(zPos);
+            calculateSize(zPos);
         }
         while (!bst.binTree.isRoot(zPos)) { // traverse up the tree towards the
             // root
             zPos = bst.binTree.parent(zPos);
             calculateHeight(zPos);
+            calculateSize(zPos);
             if (!isBalanced(zPos)) {
                 // perform a trinode restructuring at zPos's tallest grandchild
                 Position<AVLInfo<E>> xPos = tallerChild(tallerChild(zPos));
@@ -217,6 +244,9 @@ public class AVLTree<E> implements BinarySearchTree<E> {
                 calculateHeight(bst.binTree.left(zPos));
                 calculateHeight(bst.binTree.right(zPos));
                 calculateHeight(zPos);
+                calculateSize(bst.binTree.left(zPos));
+                calculateSize(bst.binTree.right(zPos));
+                calculateSize(zPos);
             }
         }
     }
@@ -295,12 +325,88 @@ public class AVLTree<E> implements BinarySearchTree<E> {
         return fromPositionAVLInfoToPosition(iterable);
     }
 
-    private List<Position<E>> fromPositionAVLInfoToPosition(Iterable<Position<AVLInfo<E>>> iterable) {
-        List<Position<E>> positions = new ArrayList<>();
-        for (Position<AVLInfo<E>> i : iterable) {
-            positions.add(i.getElement());
+    @Override
+    public Position<E> next(Position<E> pos) throws RuntimeException {
+        Position<AVLInfo<E>> next = bst.next(checkPosition(pos).getTreePosition());
+        return (next == null) ? null : next.getElement();
+    }
+
+    @Override
+    public Position<E> prev(Position<E> pos) throws RuntimeException {
+        Position<AVLInfo<E>> prev = bst.prev(checkPosition(pos).getTreePosition());
+        return (prev == null) ? null : prev.getElement();
+    }
+
+    /**
+     * Returns the number of elements smaller than value, or smaller than or
+     * equal to it if inclusive, going down a single path with the subtree
+     * sizes.
+     */
+    private int countBelow(E value, boolean inclusive) {
+        int count = 0;
+        Position<AVLInfo<E>> pos = bst.binTree.root();
+        while (bst.binTree.isInternal(pos)) {
+            int comp = comparator.compare(value, pos.getElement().getElement());
+            if (comp > 0 || (inclusive && comp == 0)) {
+                count += size(bst.binTree.left(pos)) + 1;
+                pos = bst.binTree.right(pos);
+            } else {
+                pos = bst.binTree.left(pos);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int rank(E value) {
+        return countBelow(value, false);
+    }
+
+    @Override
+    public Position<E> select(int k) throws RuntimeException {
+        if (k < 0 || k >= size()) {
+            throw new RuntimeException("Invalid index.");
         }
-        return positions;
+        Position<AVLInfo<E>> pos = bst.binTree.root();
+        int leftSize = size(bst.binTree.left(pos));
+        while (k != leftSize) {
+            if (k < leftSize) {
+                pos = bst.binTree.left(pos);
+            } else {
+                k -= leftSize + 1;
+                pos = bst.binTree.right(pos);
+            }
+            leftSize = size(bst.binTree.left(pos));
+        }
+        return pos.getElement();
+    }
+
+    @Override
+    public int countRange(E minValue, E maxValue) throws RuntimeException {
+        if (comparator.compare(minValue, maxValue) > 0) {
+            throw new RuntimeException("Invalid range. (min>max)");
+        }
+        return countBelow(maxValue, true) - countBelow(minValue, false);
+    }
+
+    /**
+     * Maps the positions of the inner tree to the AVLInfo they hold as they
+     * are iterated, instead of copying them.
+     */
+    private Iterable<Position<E>> fromPositionAVLInfoToPosition(Iterable<Position<AVLInfo<E>>> iterable) {
+        return () -> new Iterator<Position<E>>() {
+            private final Iterator<Position<AVLInfo<E>>> it = iterable.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Position<E> next() {
+                return it.next().getElement();
+            }
+        };
     }
 
 }
@@ -56,4 +56,37 @@ public interface BinarySearchTree<E> extends Iterable<Position<E>> {
     Iterable<Position<E>> successors(Position<E> pos);
     Iterable<Position<E>> predecessors(Position<E> pos);
 
+    /**
+     * Returns the entry that follows pos in inorder, or null if pos is the
+     * last one.
+     */
+    Position<E> next(Position<E> pos) throws RuntimeException;
+
+    /**
+     * Returns the entry that precedes pos in inorder, or null if pos is the
+     * first one.
+     */
+    Position<E> prev(Position<E> pos) throws RuntimeException;
+
+    /**
+     * Returns the number of entries whose key is smaller than the given one.
+     * Like select and countRange, it takes time proportional to the height in
+     * the trees that keep subtree sizes ({@link AVLTree}, {@link RBTree} and
+     * {@link CompactBinarySearchTree} with its subclasses) and linear time in
+     * {@link LinkedBinarySearchTree}, which walks the entries in inorder.
+     */
+    int rank(E value);
+
+    /**
+     * Returns the entry at index k (from 0) in inorder. See {@link #rank} for
+     * its cost.
+     */
+    Position<E> select(int k) throws RuntimeException;
+
+    /**
+     * Returns the number of entries between minValue and maxValue, both
+     * included. See {@link #rank} for its cost.
+     */
+    int countRange(E minValue, E maxValue) throws RuntimeException;
+
 }
@@ -0,0 +1,110 @@
+package material.tree.binarysearchtree;
+
+import java.util.Comparator;
+
+/**
+ * AVL tree on top of {@link CompactBinarySearchTree}. The height is stored in
+ * the nodes, so there is a single object per element instead of the two nodes
+ * and the AVLInfo of {@link AVLTree}. The rebalancing is the one of AVLTree:
+ * after every change, the heights are recomputed on the way up and unbalanced
+ * nodes are fixed with a tri-node restructuring.
+ *
+ * @param <E> Type of the elements
+ * @author vlt23
+ */
+public class CompactAVLTree<E> extends CompactBinarySearchTree<E> {
+
+    private static class AVLNode<T> extends Node<T> {
+
+        private int height = 1;
+
+        AVLNode(T element, Node<T> parent) {
+            super(element, parent);
+        }
+    }
+
+    /**
+     * Creates a CompactAVLTree with a default comparator.
+     */
+    public CompactAVLTree() {
+        this(null);
+    }
+
+    /**
+     * Creates a CompactAVLTree with the given comparator.
+     */
+    public CompactAVLTree(Comparator<E> c) {
+        super(c);
+    }
+
+    @Override
+    protected Node<E> newNode(E element, Node<E> parent) {
+        return new AVLNode<>(element, parent);
+    }
+
+    private static int height(Node<?> node) {
+        return (node == null) ? 0 : ((AVLNode<?>) node).height;
+    }
+
+    private static void calculateHeight(Node<?> node) {
+        ((AVLNode<?>) node).height = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    private static boolean isBalanced(Node<?> node) {
+        int bf = height(node.left) - height(node.right);
+        return (-1 <= bf) && (bf <= 1);
+    }
+
+    /**
+     * Returns a child of node with height no smaller than that of the other
+     * child. Ties are broken by taking the child on the same side as node is
+     * of its parent, so that a single rotation is enough.
+     */
+    private static <T> Node<T> tallerChild(Node<T> node) {
+        int leftHeight = height(node.left);
+        int rightHeight = height(node.right);
+        if (leftHeight != rightHeight) {
+            return (leftHeight > rightHeight) ? node.left : node.right;
+        }
+        if (node.parent == null || node == node.parent.left) {
+            return node.left;
+        }
+        return node.right;
+    }
+
+    /**
+     * Traverses the path from node to the root, recomputing heights and
+     * restructuring the unbalanced nodes.
+     */
+    private void rebalance(Node<E> node) {
+        while (node != null) {
+            calculateHeight(node);
+            if (!isBalanced(node)) {
+                node = restructure(tallerChild(tallerChild(node)));
+                calculateHeight(node.left);
+                calculateHeight(node.right);
+                calculateHeight(node);
+            }
+            node = node.parent;
+        }
+    }
+
+    @Override
+    protected void afterInsert(Node<E> node) {
+        rebalance(node.parent);
+    }
+
+    @Override
+    protected void afterRemove(Node<E> removed, Node<E> child, Node<E> parent) {
+        rebalance(parent);
+    }
+
+    @Override
+    protected void swapInfo(Node<E> a, Node<E> b) {
+        AVLNode<E> x = (AVLNode<E>) a;
+        AVLNode<E> y = (AVLNode<E>) b;
+        int height = x.height;
+        x.height = y.height;
+        y.height = height;
+    }
+}
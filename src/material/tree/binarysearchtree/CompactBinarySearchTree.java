@@ -0,0 +1,667 @@
+package material.tree.binarysearchtree;
+
+import material.Position;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Binary search tree whose nodes link to null instead of to external nodes.
+ * {@link LinkedBinarySearchTree} gives every element an internal node with
+ * two external children holding null, so it needs about twice the nodes;
+ * here every node holds an element, and it is the position returned for it.
+ *
+ * <p>All the searches are iterative and make one comparison per level, and
+ * inorder walks climb through the parent links. Equal elements are inserted
+ * to the right of the ones already in the tree. Every node keeps the size of
+ * its subtree, so rank, select and countRange go down a single path: they
+ * take logarithmic time in the balanced subclasses.</p>
+ *
+ * <p>Balanced trees extend this class through its hooks: {@link #newNode} to
+ * create nodes carrying balance information, {@link #afterInsert} and
+ * {@link #afterRemove} to restore the balance, {@link #swapInfo} to keep the
+ * balance information with the place in the tree when two nodes are
+ * exchanged, and the rotations to restructure the tree. See
+ * {@link CompactAVLTree} and {@link CompactRBTree}.</p>
+ *
+ * @param <E> Type of the elements
+ * @author vlt23
+ */
+public class CompactBinarySearchTree<E> implements BinarySearchTree<E> {
+
+    /**
+     * Node of the tree. Missing children are null.
+     *
+     * @param <T> Type of the element
+     */
+    protected static class Node<T> implements Position<T> {
+
+        protected final T element;
+        protected Node<T> parent;
+        protected Node<T> left;
+        protected Node<T> right;
+        protected int size = 1; // number of nodes of the subtree rooted here
+
+        protected Node(T element, Node<T> parent) {
+            this.element = element;
+            this.parent = parent;
+        }
+
+        @Override
+        public T getElement() {
+            return element;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(element);
+        }
+    }
+
+    private class CompactIterator implements Iterator<Position<E>> {
+
+        private Node<E> next = firstNode();
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Position<E> next() {
+            if (next == null) {
+                throw new RuntimeException("The BST has not more elements");
+            }
+            Node<E> toReturn = next;
+            next = nextNode(next);
+            return toReturn;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Inorder iterator over the nodes from a given one on that are less than
+     * or equal to maxValue. The tree must not be modified while it is in use.
+     */
+    private class RangeIterator implements Iterator<Position<E>> {
+
+        private final E maxValue;
+        private Node<E> next;
+
+        private RangeIterator(Node<E> first, E maxValue) {
+            this.maxValue = maxValue;
+            this.next = upTo(first);
+        }
+
+        private Node<E> upTo(Node<E> node) {
+            return (node != null && comparator.compare(node.element, maxValue) <= 0) ? node : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Position<E> next() {
+            if (next == null) {
+                throw new RuntimeException("The BST has not more elements");
+            }
+            Node<E> toReturn = next;
+            next = upTo(nextNode(next));
+            return toReturn;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Iterator from a given node to the last one, or to the first one if
+     * backwards. The tree must not be modified while it is in use.
+     */
+    private class StepIterator implements Iterator<Position<E>> {
+
+        private final boolean backwards;
+        private Node<E> next;
+
+        private StepIterator(Node<E> first, boolean backwards) {
+            this.next = first;
+            this.backwards = backwards;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Position<E> next() {
+            if (next == null) {
+                throw new RuntimeException("The BST has not more elements");
+            }
+            Node<E> toReturn = next;
+            next = backwards ? prevNode(next) : nextNode(next);
+            return toReturn;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    protected Node<E> root;
+    protected final Comparator<E> comparator;
+    protected int size = 0;
+
+    /**
+     * Creates a CompactBinarySearchTree with a default comparator.
+     */
+    public CompactBinarySearchTree() {
+        this(null);
+    }
+
+    /**
+     * Creates a CompactBinarySearchTree with the given comparator.
+     */
+    public CompactBinarySearchTree(Comparator<E> c) {
+        this.comparator = (c == null) ? new DefaultComparator<>() : c;
+    }
+
+    /**
+     * Creates the node of a new element. Balanced trees override it to return
+     * nodes with balance information.
+     */
+    protected Node<E> newNode(E element, Node<E> parent) {
+        return new Node<>(element, parent);
+    }
+
+    /**
+     * Called after a node has been linked as a leaf.
+     */
+    protected void afterInsert(Node<E> node) {
+    }
+
+    /**
+     * Called after a node with at most one child has been unlinked.
+     *
+     * @param removed the unlinked node, still holding its balance information
+     * @param child   the child that took its place, or null
+     * @param parent  the parent of that place, or null if it is the root
+     */
+    protected void afterRemove(Node<E> removed, Node<E> child, Node<E> parent) {
+    }
+
+    /**
+     * Called when two nodes exchange their places in the tree, so balance
+     * information that belongs to a place rather than to an element can be
+     * exchanged too.
+     */
+    protected void swapInfo(Node<E> a, Node<E> b) {
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of levels of the tree, 0 if it is empty. Walks the
+     * whole tree, meant for diagnostics and tests.
+     */
+    public int height() {
+        int height = 0;
+        List<Node<E>> level = new ArrayList<>();
+        if (root != null) {
+            level.add(root);
+        }
+        while (!level.isEmpty()) {
+            height++;
+            List<Node<E>> below = new ArrayList<>();
+            for (Node<E> node : level) {
+                if (node.left != null) {
+                    below.add(node.left);
+                }
+                if (node.right != null) {
+                    below.add(node.right);
+                }
+            }
+            level = below;
+        }
+        return height;
+    }
+
+    @Override
+    public Position<E> find(E value) {
+        Node<E> node = root;
+        while (node != null) {
+            int comp = comparator.compare(value, node.element);
+            if (comp < 0) {
+                node = node.left;
+            } else if (comp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first node, in inorder, whose element is greater than or
+     * equal to value, or null.
+     */
+    protected Node<E> ceiling(E value) {
+        Node<E> candidate = null;
+        Node<E> node = root;
+        while (node != null) {
+            if (comparator.compare(value, node.element) <= 0) {
+                candidate = node; // equal elements may still be further left
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Returns the last node, in inorder, whose element is less than or equal to
+     * value, or null.
+     */
+    protected Node<E> floor(E value) {
+        Node<E> candidate = null;
+        Node<E> node = root;
+        while (node != null) {
+            if (comparator.compare(value, node.element) < 0) {
+                node = node.left;
+            } else {
+                candidate = node; // equal elements may still be further right
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    protected Node<E> firstNode() {
+        Node<E> node = root;
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    protected Node<E> lastNode() {
+        Node<E> node = root;
+        while (node != null && node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node that follows node in inorder, or null.
+     */
+    protected Node<E> nextNode(Node<E> node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+        while (node.parent != null && node == node.parent.right) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+
+    /**
+     * Returns the node that precedes node in inorder, or null.
+     */
+    protected Node<E> prevNode(Node<E> node) {
+        if (node.left != null) {
+            node = node.left;
+            while (node.right != null) {
+                node = node.right;
+            }
+            return node;
+        }
+        while (node.parent != null && node == node.parent.left) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+
+    /**
+     * Adds to list, in inorder, the nodes from node on that are less than or
+     * equal to maxValue.
+     */
+    private void addUpTo(List<Position<E>> list, Node<E> node, E maxValue) {
+        while (node != null && comparator.compare(node.element, maxValue) <= 0) {
+            list.add(node);
+            node = nextNode(node);
+        }
+    }
+
+    @Override
+    public Iterable<Position<E>> findAll(E value) {
+        List<Position<E>> list = new ArrayList<>();
+        addUpTo(list, ceiling(value), value);
+        return list;
+    }
+
+    @Override
+    public Position<E> insert(E value) {
+        Node<E> parent = null;
+        Node<E> node = root;
+        boolean left = false;
+        while (node != null) {
+            parent = node;
+            node.size++; // the new node will be below it
+            left = comparator.compare(value, node.element) < 0;
+            node = left ? node.left : node.right;
+        }
+        Node<E> newNode = newNode(value, parent);
+        if (parent == null) {
+            root = newNode;
+        } else if (left) {
+            parent.left = newNode;
+        } else {
+            parent.right = newNode;
+        }
+        size++;
+        afterInsert(newNode);
+        return newNode;
+    }
+
+    @Override
+    public E remove(Position<E> pos) throws RuntimeException {
+        Node<E> node = checkPosition(pos);
+        E toReturn = node.element;
+        if (node.left != null && node.right != null) {
+            // the successor takes the place of the node, which then has no left child
+            Node<E> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            swapWithSuccessor(node, successor);
+            swapInfo(node, successor);
+        }
+        Node<E> child = (node.left != null) ? node.left : node.right;
+        Node<E> parent = node.parent;
+        replaceChild(parent, node, child);
+        if (child != null) {
+            child.parent = parent;
+        }
+        node.parent = null;
+        node.left = null;
+        node.right = null;
+        for (Node<E> ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.size--;
+        }
+        size--;
+        afterRemove(node, child, parent);
+        return toReturn;
+    }
+
+    /**
+     * Exchanges the places of a node with two children and its successor,
+     * which is the leftmost node of its right subtree. The elements stay in
+     * their nodes, so the positions given to the user remain valid, and the
+     * subtree sizes stay with the places.
+     */
+    private void swapWithSuccessor(Node<E> node, Node<E> successor) {
+        int nodeSize = node.size;
+        node.size = successor.size;
+        successor.size = nodeSize;
+        Node<E> nodeParent = node.parent;
+        Node<E> nodeLeft = node.left;
+        Node<E> nodeRight = node.right;
+        Node<E> successorParent = successor.parent;
+        Node<E> successorRight = successor.right;
+
+        replaceChild(nodeParent, node, successor);
+        successor.parent = nodeParent;
+        successor.left = nodeLeft;
+        nodeLeft.parent = successor;
+        if (successor == nodeRight) {
+            successor.right = node;
+            node.parent = successor;
+        } else {
+            successor.right = nodeRight;
+            nodeRight.parent = successor;
+            successorParent.left = node;
+            node.parent = successorParent;
+        }
+        node.left = null;
+        node.right = successorRight;
+        if (successorRight != null) {
+            successorRight.parent = node;
+        }
+    }
+
+    /**
+     * Makes newChild the child of parent that oldChild was, or the root if
+     * parent is null. The parent link of newChild is not changed.
+     */
+    protected void replaceChild(Node<E> parent, Node<E> oldChild, Node<E> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    /**
+     * Moves the right child of node to its place, with node as its left child.
+     */
+    protected void rotateLeft(Node<E> node) {
+        Node<E> r = node.right;
+        node.right = r.left;
+        if (r.left != null) {
+            r.left.parent = node;
+        }
+        replaceChild(node.parent, node, r);
+        r.parent = node.parent;
+        r.left = node;
+        node.parent = r;
+        r.size = node.size;
+        node.size = 1 + sizeOf(node.left) + sizeOf(node.right);
+    }
+
+    /**
+     * Moves the left child of node to its place, with node as its right child.
+     */
+    protected void rotateRight(Node<E> node) {
+        Node<E> l = node.left;
+        node.left = l.right;
+        if (l.right != null) {
+            l.right.parent = node;
+        }
+        replaceChild(node.parent, node, l);
+        l.parent = node.parent;
+        l.right = node;
+        node.parent = l;
+        l.size = node.size;
+        node.size = 1 + sizeOf(node.left) + sizeOf(node.right);
+    }
+
+    private static int sizeOf(Node<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * Performs a tri-node restructuring of a node x, its parent y and its
+     * grandparent z, with one or two rotations.
+     *
+     * @return the new root of the restructured subtree
+     */
+    protected Node<E> restructure(Node<E> x) {
+        Node<E> y = x.parent;
+        Node<E> z = y.parent;
+        if ((x == y.left) == (y == z.left)) {
+            rotateUp(y);
+            return y;
+        }
+        rotateUp(x);
+        rotateUp(x);
+        return x;
+    }
+
+    private void rotateUp(Node<E> node) {
+        if (node == node.parent.left) {
+            rotateRight(node.parent);
+        } else {
+            rotateLeft(node.parent);
+        }
+    }
+
+    @Override
+    public Iterator<Position<E>> iterator() {
+        return new CompactIterator();
+    }
+
+    /**
+     * Returns the elements between minValue and maxValue, both included, in
+     * inorder. Nothing is copied: each iteration walks the tree from the first
+     * element of the range and stops at maxValue.
+     */
+    @Override
+    public Iterable<Position<E>> findRange(E minValue, E maxValue) throws RuntimeException {
+        if (comparator.compare(minValue, maxValue) > 0) {
+            throw new RuntimeException("Invalid range. (min>max)");
+        }
+        return () -> new RangeIterator(ceiling(minValue), maxValue);
+    }
+
+    @Override
+    public Position<E> first() throws RuntimeException {
+        if (this.isEmpty()) {
+            throw new RuntimeException("No first element.");
+        }
+        return firstNode();
+    }
+
+    @Override
+    public Position<E> last() throws RuntimeException {
+        if (this.isEmpty()) {
+            throw new RuntimeException("No last element.");
+        }
+        return lastNode();
+    }
+
+    /**
+     * Returns the number of elements smaller than value, or smaller than or
+     * equal to it if inclusive, going down a single path with the subtree
+     * sizes.
+     */
+    private int countBelow(E value, boolean inclusive) {
+        int count = 0;
+        Node<E> node = root;
+        while (node != null) {
+            int comp = comparator.compare(value, node.element);
+            if (comp > 0 || (inclusive && comp == 0)) {
+                count += sizeOf(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int rank(E value) {
+        return countBelow(value, false);
+    }
+
+    @Override
+    public Position<E> select(int k) throws RuntimeException {
+        if (k < 0 || k >= size) {
+            throw new RuntimeException("Invalid index.");
+        }
+        Node<E> node = root;
+        int leftSize = sizeOf(node.left);
+        while (k != leftSize) {
+            if (k < leftSize) {
+                node = node.left;
+            } else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+            leftSize = sizeOf(node.left);
+        }
+        return node;
+    }
+
+    @Override
+    public int countRange(E minValue, E maxValue) throws RuntimeException {
+        if (comparator.compare(minValue, maxValue) > 0) {
+            throw new RuntimeException("Invalid range. (min>max)");
+        }
+        return countBelow(maxValue, true) - countBelow(minValue, false);
+    }
+
+    /**
+     * Returns the elements greater than or equal to the one at pos, in
+     * ascending order.
+     */
+    @Override
+    public Iterable<Position<E>> successors(Position<E> pos) {
+        E value = checkPosition(pos).element;
+        return () -> new StepIterator(ceiling(value), false);
+    }
+
+    /**
+     * Returns the elements less than or equal to the one at pos, in descending
+     * order.
+     */
+    @Override
+    public Iterable<Position<E>> predecessors(Position<E> pos) {
+        E value = checkPosition(pos).element;
+        return () -> new StepIterator(floor(value), true);
+    }
+
+    @Override
+    public Position<E> next(Position<E> pos) throws RuntimeException {
+        return nextNode(checkPosition(pos));
+    }
+
+    @Override
+    public Position<E> prev(Position<E> pos) throws RuntimeException {
+        return prevNode(checkPosition(pos));
+    }
+
+    /**
+     * If p is a node of a compact tree, cast to Node, else throw exception.
+     */
+    @SuppressWarnings("unchecked")
+    protected Node<E> checkPosition(Position<E> p) throws RuntimeException {
+        if (!(p instanceof Node)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        Node<E> node = (Node<E>) p;
+        if (node.parent == null && node != root) { // removed nodes are detached
+            throw new RuntimeException("The position is invalid");
+        }
+        return node;
+    }
+
+}
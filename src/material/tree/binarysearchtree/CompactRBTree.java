@@ -0,0 +1,140 @@
+package material.tree.binarysearchtree;
+
+import java.util.Comparator;
+
+/**
+ * Red-black tree on top of {@link CompactBinarySearchTree}. The color is stored
+ * in the nodes, so there is a single object per element instead of the two
+ * nodes and the RBInfo of {@link RBTree}. Missing children count as black
+ * leaves.
+ *
+ * @param <E> Type of the elements
+ * @author vlt23
+ */
+public class CompactRBTree<E> extends CompactBinarySearchTree<E> {
+
+    private static class RBNode<T> extends Node<T> {
+
+        private boolean isRed = true; // new nodes are red
+
+        RBNode(T element, Node<T> parent) {
+            super(element, parent);
+        }
+    }
+
+    /**
+     * Creates a CompactRBTree with a default comparator.
+     */
+    public CompactRBTree() {
+        this(null);
+    }
+
+    /**
+     * Creates a CompactRBTree with the given comparator.
+     */
+    public CompactRBTree(Comparator<E> c) {
+        super(c);
+    }
+
+    @Override
+    protected Node<E> newNode(E element, Node<E> parent) {
+        return new RBNode<>(element, parent);
+    }
+
+    private static boolean isRed(Node<?> node) {
+        return node != null && ((RBNode<?>) node).isRed;
+    }
+
+    private static void setRed(Node<?> node, boolean red) {
+        ((RBNode<?>) node).isRed = red;
+    }
+
+    /**
+     * Remedies a double red violation caused by the insertion of node.
+     */
+    @Override
+    protected void afterInsert(Node<E> node) {
+        while (node != root && isRed(node.parent)) {
+            Node<E> parent = node.parent;
+            Node<E> grandParent = parent.parent;
+            boolean parentLeft = (parent == grandParent.left);
+            Node<E> uncle = parentLeft ? grandParent.right : grandParent.left;
+            if (isRed(uncle)) { // recoloring, the violation may move up
+                setRed(parent, false);
+                setRed(uncle, false);
+                setRed(grandParent, true);
+                node = grandParent;
+            } else { // trinode restructuring
+                Node<E> mid = restructure(node);
+                setRed(mid, false);
+                setRed(mid.left, true);
+                setRed(mid.right, true);
+                break;
+            }
+        }
+        setRed(root, false);
+    }
+
+    /**
+     * Remedies a double black violation caused by the removal of a black node.
+     */
+    @Override
+    protected void afterRemove(Node<E> removed, Node<E> child, Node<E> parent) {
+        if (isRed(removed)) {
+            return;
+        }
+        Node<E> node = child;
+        while (node != root && !isRed(node)) {
+            boolean left = (node == parent.left);
+            Node<E> sibling = left ? parent.right : parent.left;
+            if (isRed(sibling)) { // adjustment, the sibling becomes black
+                setRed(sibling, false);
+                setRed(parent, true);
+                if (left) {
+                    rotateLeft(parent);
+                } else {
+                    rotateRight(parent);
+                }
+                sibling = left ? parent.right : parent.left;
+            }
+            Node<E> near = left ? sibling.left : sibling.right;
+            Node<E> far = left ? sibling.right : sibling.left;
+            if (!isRed(near) && !isRed(far)) { // recoloring, the violation may move up
+                setRed(sibling, true);
+                node = parent;
+                parent = node.parent;
+            } else { // restructuring
+                if (!isRed(far)) {
+                    setRed(near, false);
+                    setRed(sibling, true);
+                    if (left) {
+                        rotateRight(sibling);
+                    } else {
+                        rotateLeft(sibling);
+                    }
+                    sibling = left ? parent.right : parent.left;
+                    far = left ? sibling.right : sibling.left;
+                }
+                setRed(sibling, isRed(parent));
+                setRed(parent, false);
+                setRed(far, false);
+                if (left) {
+                    rotateLeft(parent);
+                } else {
+                    rotateRight(parent);
+                }
+                node = root;
+            }
+        }
+        if (node != null) {
+            setRed(node, false);
+        }
+    }
+
+    @Override
+    protected void swapInfo(Node<E> a, Node<E> b) {
+        boolean red = isRed(a);
+        setRed(a, isRed(b));
+        setRed(b, red);
+    }
+}
@@ -2,10 +2,8 @@ package material.tree.binarysearchtree;
 
 import material.Position;
 import material.tree.binarytree.LinkedBinaryTree;
-import material.tree.iterators.InorderBinaryTreeIterator;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -13,6 +11,10 @@ import java.util.List;
 /**
  * Realization of a dictionary by means of a binary search tree.
  *
+ * <p>The nodes don't keep subtree sizes, so rank, select and countRange walk
+ * the entries in inorder and take linear time. {@link AVLTree}, {@link RBTree}
+ * and the compact trees answer them in time proportional to their height.</p>
+ *
  * @author R. Cabido, A. Duarte and J. Vélez
  * @author vlt23
  */
@@ -57,6 +59,80 @@ public class LinkedBinarySearchTree<E> implements BinarySearchTree<E> {
         }
     }
 
+    /**
+     * Inorder iterator over the entries from a given position on that are less
+     * than or equal to maxValue. It walks the tree as it goes, so the tree must
+     * not be modified while it is in use.
+     */
+    private class RangeIterator implements Iterator<Position<E>> {
+        private final E maxValue;
+        private Position<E> next;
+
+        private RangeIterator(Position<E> first, E maxValue) {
+            this.maxValue = maxValue;
+            this.next = upTo(first);
+        }
+
+        private Position<E> upTo(Position<E> pos) {
+            return (pos != null && comparator.compare(pos.getElement(), maxValue) <= 0) ? pos : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Position<E> next() {
+            if (next == null) {
+                throw new RuntimeException("The BST has not more elements");
+            }
+            Position<E> aux = next;
+            next = upTo(nextInternal(aux));
+            return aux;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
+    /**
+     * Iterator that goes from a given position to the last one, or to the
+     * first one if backwards, one inorder step at a time. Like RangeIterator,
+     * the tree must not be modified while it is in use.
+     */
+    private class StepIterator implements Iterator<Position<E>> {
+        private final boolean backwards;
+        private Position<E> next;
+
+        private StepIterator(Position<E> first, boolean backwards) {
+            this.next = first;
+            this.backwards = backwards;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Position<E> next() {
+            if (next == null) {
+                throw new RuntimeException("The BST has not more elements");
+            }
+            Position<E> aux = next;
+            next = backwards ? prevInternal(aux) : nextInternal(aux);
+            return aux;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not implemented.");
+        }
+    }
+
     protected LinkedBinaryTree<E> binTree;
     protected Comparator<E> comparator; // comparator
     protected int size = 0; // number of entries
@@ -136,35 +212,116 @@ public class LinkedBinarySearchTree<E> implements BinarySearchTree<E> {
     }
 
     /**
-     * Auxiliary method used by find, insert, and remove.
+     * Auxiliary method used by find, insert, and remove. Walks down from pos
+     * with one comparison per node, so the depth of the tree is not limited by
+     * the stack.
      */
     protected Position<E> treeSearch(E value, Position<E> pos) throws RuntimeException {
-        if (this.binTree.isLeaf(pos)) {
-            return pos; // key not found, return external node
+        while (this.binTree.isInternal(pos)) {
+            int comp = comparator.compare(value, pos.getElement());
+            if (comp < 0) {
+                pos = this.binTree.left(pos); // search left subtree
+            } else if (comp > 0) {
+                pos = this.binTree.right(pos); // search right subtree
+            } else {
+                return pos; // return internal node where key is found
+            }
+        }
+        return pos; // key not found, return external node
+    }
+
+    /**
+     * Returns the first internal node, in inorder, whose element is greater than
+     * or equal to value, or null if there is none. Makes one comparison per
+     * level.
+     */
+    protected Position<E> ceiling(E value) {
+        Position<E> candidate = null;
+        Position<E> pos = this.binTree.root();
+        while (this.binTree.isInternal(pos)) {
+            if (comparator.compare(value, pos.getElement()) <= 0) {
+                candidate = pos; // equal elements may still be further left
+                pos = this.binTree.left(pos);
+            } else {
+                pos = this.binTree.right(pos);
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Returns the last internal node, in inorder, whose element is less than or
+     * equal to value, or null if there is none. Makes one comparison per level.
+     */
+    protected Position<E> floor(E value) {
+        Position<E> candidate = null;
+        Position<E> pos = this.binTree.root();
+        while (this.binTree.isInternal(pos)) {
+            if (comparator.compare(value, pos.getElement()) < 0) {
+                pos = this.binTree.left(pos);
+            } else {
+                candidate = pos; // equal elements may still be further right
+                pos = this.binTree.right(pos);
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Returns the internal node that follows pos in inorder, or null if pos is
+     * the last one. Climbs through the parent links instead of keeping a stack.
+     */
+    protected Position<E> nextInternal(Position<E> pos) {
+        Position<E> right = this.binTree.right(pos);
+        if (this.binTree.isInternal(right)) {
+            pos = right;
+            while (this.binTree.isInternal(this.binTree.left(pos))) {
+                pos = this.binTree.left(pos);
+            }
+            return pos;
+        }
+        while (!this.binTree.isRoot(pos)) {
+            Position<E> parent = this.binTree.parent(pos);
+            if (this.binTree.left(parent) == pos) {
+                return parent;
+            }
+            pos = parent;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the internal node that precedes pos in inorder, or null if pos is
+     * the first one. Mirror of nextInternal.
+     */
+    protected Position<E> prevInternal(Position<E> pos) {
+        Position<E> left = this.binTree.left(pos);
+        if (this.binTree.isInternal(left)) {
+            pos = left;
+            while (this.binTree.isInternal(this.binTree.right(pos))) {
+                pos = this.binTree.right(pos);
+            }
+            return pos;
         }
-        E curValue = pos.getElement();
-        int comp = comparator.compare(value, curValue);
-        if (comp < 0) {
-            return treeSearch(value, this.binTree.left(pos)); // search left subtree
-        } else if (comp > 0) {
-            return treeSearch(value, this.binTree.right(pos)); // search right subtree
+        while (!this.binTree.isRoot(pos)) {
+            Position<E> parent = this.binTree.parent(pos);
+            if (this.binTree.right(parent) == pos) {
+                return parent;
+            }
+            pos = parent;
         }
-        return pos; // return internal node where key is found
+        return null;
     }
 
     /**
-     * Adds to list all entries in the subtree rooted at v having keys equal to k.
+     * Adds to list, in inorder, the entries from pos on that are less than or
+     * equal to maxValue.
      */
-    protected void addAll(List<Position<E>> list, Position<E> pos, E value) {
-        if (this.binTree.isLeaf(pos)) {
-            return;
+    private void addUpTo(List<Position<E>> list, Position<E> pos, E maxValue) {
+        while (pos != null && comparator.compare(pos.getElement(), maxValue) <= 0) {
+            list.add(pos);
+            pos = nextInternal(pos);
         }
-        Position<E> p = treeSearch(value, pos);
-        if (!this.binTree.isLeaf(p)) { // we found an entry with key equal to k
-            addAll(list, this.binTree.left(p), value);
-            list.add(p); // add entries in inorder
-            addAll(list, this.binTree.right(p), value);
-        } // this recursive algorithm is simple, but it's not the fastest
     }
 
     /**
@@ -201,19 +358,21 @@ public class LinkedBinarySearchTree<E> implements BinarySearchTree<E> {
     @Override
     public Iterable<Position<E>> findAll(E value) {
         List<Position<E>> list = new ArrayList<>();
-        addAll(list, this.binTree.root(), value);
+        addUpTo(list, ceiling(value), value);
         return list;
     }
 
     /**
      * Inserts an entry into the tree and returns the newly created entry.
+     * Entries equal to some already in the tree go to their right, so they
+     * follow them in inorder.
      */
     @Override
     public Position<E> insert(E value) {
-        Position<E> insPos = treeSearch(value, this.binTree.root());
-        // To consider nodes already in the tree with the same key
-        while (!this.binTree.isLeaf(insPos)) {
-            insPos = treeSearch(value, this.binTree.right(insPos)); // iterative search for insertion position
+        Position<E> insPos = this.binTree.root();
+        while (this.binTree.isInternal(insPos)) {
+            insPos = (comparator.compare(value, insPos.getElement()) < 0)
+                    ? this.binTree.left(insPos) : this.binTree.right(insPos);
         }
         return insertAtLeaf(insPos, value);
     }
@@ -259,79 +418,17 @@ public class LinkedBinarySearchTree<E> implements BinarySearchTree<E> {
         return new BSTIterator<>(this);
     }
 
+    /**
+     * Returns the entries between minValue and maxValue, both included, in
+     * inorder. The entries are not copied: each iteration searches the first
+     * one and walks the tree from it, stopping at maxValue, so taking only
+     * the first few entries of a wide range is cheap.
+     */
     public Iterable<Position<E>> findRange(E minValue, E maxValue) throws RuntimeException {
         if (comparator.compare(minValue, maxValue) > 0) {  // E parameter
             throw new RuntimeException("Invalid range. (min>max)");
         }
-
-        List<Position<E>> list = new ArrayList<>();
-        Position<E> currentValuePos = findNextPos(minValue, binTree.root());
-        // minValue is higher than the max node; or the returned next node is higher than the maxValue
-        if (currentValuePos == null || comparator.compare(currentValuePos.getElement(), maxValue) > 0) {
-            return list;
-        }
-
-        list.add(currentValuePos);
-        if (binTree.hasRight(currentValuePos)) {
-            Iterator<Position<E>> it = new InorderBinaryTreeIterator<>(binTree, binTree.right(currentValuePos));
-            while (it.hasNext()) {
-                Position<E> pos = it.next();
-                // Ignoring trash nodes
-                if (pos.getElement() != null) {
-                    if (comparator.compare(pos.getElement(), maxValue) <= 0) {
-                        list.add(pos);
-                    } else {
-                        break;
-                    }
-                }
-            }
-        }
-        return list;
-    }
-
-    /**
-     * Recursive method to find where the value's position
-     * @author vlt23
-     * @param value to find
-     * @param currentPos to see if has the value
-     * @return the exactly value's position, or the next if not found
-     */
-    private Position<E> findNextPos(E value, Position<E> currentPos) {
-        // Trash node, not found the exactly value's node, return to parent
-        if (currentPos.getElement() == null) {
-            return null;
-        }
-
-        if (comparator.compare(value, currentPos.getElement()) < 0) {  // Left
-            if (binTree.hasLeft(currentPos)) {
-                // Go to left subtree
-                Position<E> returnedPos = findNextPos(value, binTree.left(currentPos));
-                if (returnedPos != null) {  // Node found (can be exactly or the next), return directly
-                    return returnedPos;
-                }
-                // returnedPos is null, search the next value's node
-                if (comparator.compare(value, currentPos.getElement()) > 0) {
-                    return null;  // Go to parent node
-                }
-            }
-            return currentPos;  // Found the next value's node
-        } else if (comparator.compare(value, currentPos.getElement()) > 0) {  // Right
-            if (binTree.hasRight(currentPos)) {
-                // Go to right subtree
-                Position<E> returnedPos = findNextPos(value, binTree.right(currentPos));
-                if (returnedPos != null) {  // Node found (can be exactly or the next), return directly
-                    return returnedPos;
-                }
-                // returnedPos is null, search the next value's node
-                if (comparator.compare(value, currentPos.getElement()) > 0) {
-                    return null;  // Go to parent node
-                }
-            }
-            return currentPos;  // Found the next value's node
-        } else if (comparator.compare(currentPos.getElement(), value) == 0) {  // Found the exactly node
-            return currentPos;  // Return the exactly node
-        }
-        return null;  // Not found the exactly node, search the next value's node
+        return () -> new RangeIterator(ceiling(minValue), maxValue);
     }
 
     public Position<E> first() throws RuntimeException {
@@ -366,35 +463,98 @@ public class LinkedBinarySearchTree<E> implements BinarySearchTree<E> {
         return pos;
     }
 
-    public Iterable<Position<E>> successors(Position<E> pos) {
-        List<Position<E>> successorsList = new ArrayList<>();
-        successorsList.add(pos);
-        if (binTree.hasRight(pos)) {
-            Iterator<Position<E>> it = new InorderBinaryTreeIterator<>(binTree, binTree.right(pos));
-            while (it.hasNext()) {
-                Position<E> position = it.next();
-                if (position.getElement() != null) {
-                    successorsList.add(position);
-                }
-            }
+    /**
+     * Counts the entries smaller than value by walking them in inorder, so it
+     * takes time proportional to the result.
+     */
+    @Override
+    public int rank(E value) {
+        int count = 0;
+        Position<E> pos = firstInternal();
+        while (pos != null && comparator.compare(pos.getElement(), value) < 0) {
+            count++;
+            pos = nextInternal(pos);
         }
-        return successorsList;
+        return count;
     }
 
-    public Iterable<Position<E>> predecessors(Position<E> pos) {
-        List<Position<E>> predecessorsList = new ArrayList<>();
-        Iterator<Position<E>> it = new InorderBinaryTreeIterator<>(binTree);
-        while (it.hasNext()) {
-            Position<E> position = it.next();
-            if (position.getElement() != null) {
-                predecessorsList.add(position);
-                if (position == pos) {
-                    break;
-                }
-            }
+    /**
+     * Walks k entries in inorder from the first one.
+     */
+    @Override
+    public Position<E> select(int k) throws RuntimeException {
+        if (k < 0 || k >= size) {
+            throw new RuntimeException("Invalid index.");
         }
-        Collections.reverse(predecessorsList);
-        return predecessorsList;
+        Position<E> pos = firstInternal();
+        for (int i = 0; i < k; i++) {
+            pos = nextInternal(pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Counts the entries of findRange without collecting them.
+     */
+    @Override
+    public int countRange(E minValue, E maxValue) throws RuntimeException {
+        int count = 0;
+        for (Position<E> pos : findRange(minValue, maxValue)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the leftmost internal node, or null if the tree is empty.
+     */
+    private Position<E> firstInternal() {
+        Position<E> pos = this.binTree.root();
+        if (!this.binTree.isInternal(pos)) {
+            return null;
+        }
+        while (this.binTree.isInternal(this.binTree.left(pos))) {
+            pos = this.binTree.left(pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the entries greater than or equal to the one at pos, in inorder.
+     * Entries equal to it are all included, also those before pos. They are
+     * found as they are iterated, starting at the first of them, so stopping
+     * early only pays for the steps taken.
+     */
+    public Iterable<Position<E>> successors(Position<E> pos) {
+        E value = pos.getElement();
+        return () -> new StepIterator(ceiling(value), false);
+    }
+
+    /**
+     * Returns the entries less than or equal to the one at pos, in descending
+     * order, found as they are iterated like in successors.
+     */
+    public Iterable<Position<E>> predecessors(Position<E> pos) {
+        E value = pos.getElement();
+        return () -> new StepIterator(floor(value), true);
+    }
+
+    /**
+     * Returns the entry that follows pos in inorder, or null if pos is the
+     * last one. Takes constant amortized time over a walk through the tree.
+     */
+    @Override
+    public Position<E> next(Position<E> pos) {
+        return nextInternal(pos);
+    }
+
+    /**
+     * Returns the entry that precedes pos in inorder, or null if pos is the
+     * first one.
+     */
+    @Override
+    public Position<E> prev(Position<E> pos) {
+        return prevInternal(pos);
     }
 
 }
@@ -22,11 +22,13 @@ public class RBTree<E> implements BinarySearchTree<E> {
     private static class RBInfo<T> implements Comparable<RBInfo<T>>, Position<T> {
 
         private boolean isRed; // we add a color field to a BTNode
+        private int size; // and the number of nodes of its subtree
         private T element;
         private Position<RBInfo<T>> pos;
 
         RBInfo(T element) {
             this.element = element;
+            this.size = 1;
         }
 
         public void setTreePosition(Position<RBInfo<T>> pos) {
@@ -53,6 +55,14 @@ public class RBTree<E> implements BinarySearchTree<E> {
             isRed = color;
         }
 
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
         public T getElement() {
             return element;
         }
@@ -96,6 +106,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
 
     private LinkedBinarySearchTree<RBInfo<E>> bst;
     private ReestructurableBinaryTree<RBInfo<E>> resBT;
+    private final Comparator<E> comparator;
 
     public RBTree() {
         this(new DefaultComparator<>());
@@ -107,6 +118,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
      * @param c the comparator used to sort the nodes in the tree
      */
     public RBTree(Comparator<E> c) {
+        comparator = c;
         Comparator<RBInfo<E>> avlComparator = (o1, o2) -> c.compare(o1.getElement(), o2.getElement());
         bst = new LinkedBinarySearchTree<>(avlComparator);
         resBT = new ReestructurableBinaryTree<>();
@@ -154,6 +166,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
         Position<RBInfo<E>> posZ = bst.insert(aux);
         aux.setTreePosition(posZ);
         aux.setRed();
+        updateSizes(posZ);
 
         if (this.bst.binTree.isRoot(posZ)) {
             aux.setBlack();
@@ -178,7 +191,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
         Position<RBInfo<E>> uncleZ = this.bst.binTree.sibling(posV);
         final boolean blackUncle = (uncleZ.getElement() == null) || (!uncleZ.getElement().isRed);
         if (blackUncle) { // Case 1: trinode restructuring
-            posV = this.resBT.restructure(nodeZ.getTreePosition(), this.bst);
+            posV = restructure(nodeZ.getTreePosition());
             posV.getElement().setBlack();
             this.bst.binTree.left(posV).getElement().setRed();
             this.bst.binTree.right(posV).getElement().setRed();
@@ -227,6 +240,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
 
         // remove posW (leave) and its parent (nodeV)
         this.bst.removeLeaf(posW);
+        updateSizes(posR);
         if (!nodeV.isRed() && !baseCase) {
             remedyDoubleBlack(posR);
         }
@@ -259,7 +273,7 @@ public class RBTree<E> implements BinarySearchTree<E> {
             posZ = redChild(posY);
             if (posZ != null) { // Case 1: trinode restructuring
                 oldColor = nodeX.isRed();
-                posZ = this.resBT.restructure(posZ, this.bst);
+                posZ = restructure(posZ);
                 posZ.getElement().setColor(oldColor);
                 if (posR.getElement() != null)
                     posR.getElement().setBlack();
@@ -284,12 +298,46 @@ public class RBTree<E> implements BinarySearchTree<E> {
         } else {
             posZ = this.bst.binTree.left(posY);
         }
-        this.resBT.restructure(posZ, this.bst);
+        restructure(posZ);
         nodeY.setBlack();
         nodeX.setRed();
         remedyDoubleBlack(posR);
     }
 
+    /**
+     * Returns the number of nodes in the subtree rooted at pos.
+     */
+    private int size(Position<RBInfo<E>> pos) {
+        return (pos.getElement() == null) ? 0 : pos.getElement().getSize();
+    }
+
+    private void calculateSize(Position<RBInfo<E>> pos) {
+        pos.getElement().setSize(1 + size(this.bst.binTree.left(pos)) + size(this.bst.binTree.right(pos)));
+    }
+
+    /**
+     * Recomputes the sizes of the ancestors of pos after an insertion or a
+     * removal below them. The node swapped by getLeafToRemove is one of them.
+     */
+    private void updateSizes(Position<RBInfo<E>> pos) {
+        while (!this.bst.binTree.isRoot(pos)) {
+            pos = this.bst.binTree.parent(pos);
+            calculateSize(pos);
+        }
+    }
+
+    /**
+     * Performs a trinode restructuring at pos and fixes the sizes of the
+     * three nodes moved. Their subtrees below keep their sizes.
+     */
+    private Position<RBInfo<E>> restructure(Position<RBInfo<E>> pos) {
+        Position<RBInfo<E>> mid = this.resBT.restructure(pos, this.bst);
+        calculateSize(this.bst.binTree.left(mid));
+        calculateSize(this.bst.binTree.right(mid));
+        calculateSize(mid);
+        return mid;
+    }
+
     /**
      * Returns a red child of a node.
      */
@@ -354,12 +402,88 @@ public class RBTree<E> implements BinarySearchTree<E> {
         return fromPositionRBInfoToPosition(iterable);
     }
 
-    private List<Position<E>> fromPositionRBInfoToPosition(Iterable<Position<RBInfo<E>>> iterable) {
-        List<Position<E>> positions = new ArrayList<>();
-        for (Position<RBInfo<E>> i : iterable) {
-            positions.add(i.getElement());
+    @Override
+    public Position<E> next(Position<E> pos) throws RuntimeException {
+        Position<RBInfo<E>> next = bst.next(checkPosition(pos).getTreePosition());
+        return (next == null) ? null : next.getElement();
+    }
+
+    @Override
+    public Position<E> prev(Position<E> pos) throws RuntimeException {
+        Position<RBInfo<E>> prev = bst.prev(checkPosition(pos).getTreePosition());
+        return (prev == null) ? null : prev.getElement();
+    }
+
+    /**
+     * Returns the number of elements smaller than value, or smaller than or
+     * equal to it if inclusive, going down a single path with the subtree
+     * sizes.
+     */
+    private int countBelow(E value, boolean inclusive) {
+        int count = 0;
+        Position<RBInfo<E>> pos = this.bst.binTree.root();
+        while (this.bst.binTree.isInternal(pos)) {
+            int comp = comparator.compare(value, pos.getElement().getElement());
+            if (comp > 0 || (inclusive && comp == 0)) {
+                count += size(this.bst.binTree.left(pos)) + 1;
+                pos = this.bst.binTree.right(pos);
+            } else {
+                pos = this.bst.binTree.left(pos);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int rank(E value) {
+        return countBelow(value, false);
+    }
+
+    @Override
+    public Position<E> select(int k) throws RuntimeException {
+        if (k < 0 || k >= size()) {
+            throw new RuntimeException("Invalid index.");
+        }
+        Position<RBInfo<E>> pos = this.bst.binTree.root();
+        int leftSize = size(this.bst.binTree.left(pos));
+        while (k != leftSize) {
+            if (k < leftSize) {
+                pos = this.bst.binTree.left(pos);
+            } else {
+                k -= leftSize + 1;
+                pos = this.bst.binTree.right(pos);
+            }
+            leftSize = size(this.bst.binTree.left(pos));
         }
-        return positions;
+        return pos.getElement();
+    }
+
+    @Override
+    public int countRange(E minValue, E maxValue) throws RuntimeException {
+        if (comparator.compare(minValue, maxValue) > 0) {
+            throw new RuntimeException("Invalid range. (min>max)");
+        }
+        return countBelow(maxValue, true) - countBelow(minValue, false);
+    }
+
+    /**
+     * Maps the positions of the inner tree to the RBInfo they hold as they
+     * are iterated, instead of copying them.
+     */
+    private Iterable<Position<E>> fromPositionRBInfoToPosition(Iterable<Position<RBInfo<E>>> iterable) {
+        return () -> new Iterator<Position<E>>() {
+            private final Iterator<Position<RBInfo<E>>> it = iterable.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Position<E> next() {
+                return it.next().getElement();
+            }
+        };
     }
 
 }
@@ -0,0 +1,12 @@
+package test;
+
+import material.tree.binarysearchtree.AVLTree;
+import material.tree.binarysearchtree.BinarySearchTree;
+
+class AVLTreeTest extends BinarySearchTreeTest {
+
+    @Override
+    public BinarySearchTree<Integer> newBST() {
+        return new AVLTree<>();
+    }
+}
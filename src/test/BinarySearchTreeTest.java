@@ -2,11 +2,13 @@ package test;
 
 import material.Position;
 import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactBinarySearchTree;
 import material.tree.binarysearchtree.LinkedBinarySearchTree;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -196,6 +198,22 @@ class BinarySearchTreeTest {
 
     }
 
+    @Test
+    void remove_Twice() {
+        for (int i = 0; i < 10; i++) {
+            b.insert(i);
+        }
+        Position<Integer> pos = b.find(3);
+        assertEquals(3, b.remove(pos));
+        assertThrows(RuntimeException.class, () -> b.remove(pos));
+        assertEquals(9, b.size());
+        int count = 0;
+        for (Position<Integer> p : b) {
+            count++;
+        }
+        assertEquals(9, count);
+    }
+
     @Test
     void remove_many() {
         final int N = 25;
@@ -308,6 +326,55 @@ class BinarySearchTreeTest {
 
     }
 
+    @Test
+    void findRange_Lazy() {
+        final int N = 1000;
+        for (int i = 0; i < N; i++) {
+            b.insert(i);
+        }
+        Iterable<Position<Integer>> range = b.findRange(10, N);
+        b.insert(15); // the range is walked when it is iterated, not when it is requested
+
+        Iterator<Position<Integer>> it = range.iterator();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            sb.append(' ').append(it.next().getElement());
+        }
+        assertEquals(" 10 11 12 13 14 15 15 16", sb.toString());
+
+        int count = 0;
+        for (Position<Integer> p : range) {
+            count++;
+        }
+        assertEquals(N - 10 + 1, count);
+
+        it = b.findRange(N - 1, N + 5).iterator();
+        assertEquals(N - 1, it.next().getElement().intValue());
+        assertFalse(it.hasNext());
+        assertThrows(RuntimeException.class, it::next);
+    }
+
+    @Test
+    void deepSortedTree() {
+        // sorted inserts turn the tree into a list, deeper than the stack allows for recursion
+        final int N = 20000;
+        for (int i = 0; i < N; i++) {
+            b.insert(i / 2);
+        }
+        assertEquals(N, b.size());
+        assertEquals(N / 2 - 1, b.find(N / 2 - 1).getElement().intValue());
+        assertNull(b.find(N));
+        int count = 0;
+        for (Position<Integer> p : b.findAll(N / 2 - 1)) {
+            assertEquals(N / 2 - 1, p.getElement().intValue());
+            count++;
+        }
+        assertEquals(2, count);
+        StringBuilder sb = new StringBuilder();
+        b.findRange(N / 2 - 3, N).forEach(pos -> sb.append(' ').append(pos.getElement()));
+        assertEquals(" 9997 9997 9998 9998 9999 9999", sb.toString());
+    }
+
     @Test
     void first() {
         Integer expected;
@@ -400,6 +467,34 @@ class BinarySearchTreeTest {
 
     }
 
+    @Test
+    void nextAndPrev() {
+        final int N = 200;
+        Position<Integer> middle = null;
+        for (int i = 0; i < N; i++) {
+            Position<Integer> pos = b.insert((i * 37) % N);
+            if (pos.getElement() == N / 2) {
+                middle = pos;
+            }
+        }
+        Position<Integer> pos = b.first();
+        assertNull(b.prev(pos));
+        for (int i = 0; i < N - 1; i++) {
+            Position<Integer> next = b.next(pos);
+            assertEquals(i + 1, next.getElement().intValue());
+            assertSame(pos, b.prev(next));
+            pos = next;
+        }
+        assertNull(b.next(pos));
+
+        Iterator<Position<Integer>> it = b.predecessors(middle).iterator();
+        assertEquals(N / 2, it.next().getElement().intValue());
+        assertEquals(N / 2 - 1, it.next().getElement().intValue());
+        it = b.successors(middle).iterator();
+        assertEquals(N / 2, it.next().getElement().intValue());
+        assertEquals(N / 2 + 1, it.next().getElement().intValue());
+    }
+
     @Test
     void predecessors() {//menores o iguales
         Position<Integer> first = b.insert(-5);
@@ -447,4 +542,43 @@ class BinarySearchTreeTest {
         output = sb.toString();
         assertEquals(expected, output);
     }
+
+    /**
+     * Inserts sorted elements and removes about half of them at random,
+     * checking that the height stays below factor * log2(n + 2) and the order
+     * is kept. For the balanced compact trees, which expose their height.
+     */
+    static void checkBalancedAfterSortedInsertsAndRemoves(CompactBinarySearchTree<Integer> tree, double factor) {
+        final int N = 100000;
+        for (int i = 0; i < N; i++) {
+            tree.insert(i);
+        }
+        assertEquals(N, tree.size());
+        assertTrue(tree.height() <= maxHeight(N, factor));
+
+        Random rnd = new Random(42);
+        int removed = 0;
+        for (int i = 0; i < N; i++) {
+            if (rnd.nextBoolean()) {
+                Position<Integer> pos = tree.find(i);
+                assertNotNull(pos);
+                assertEquals(i, tree.remove(pos));
+                removed++;
+            }
+        }
+        assertEquals(N - removed, tree.size());
+        assertTrue(tree.height() <= maxHeight(N - removed, factor));
+
+        Integer last = null;
+        for (Position<Integer> pos : tree) {
+            if (last != null) {
+                assertTrue(last < pos.getElement());
+            }
+            last = pos.getElement();
+        }
+    }
+
+    private static int maxHeight(int n, double factor) {
+        return (int) Math.ceil(factor * Math.log(n + 2) / Math.log(2));
+    }
 }
\ No newline at end of file
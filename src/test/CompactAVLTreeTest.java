@@ -0,0 +1,19 @@
+package test;
+
+import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactAVLTree;
+import org.junit.jupiter.api.Test;
+
+class CompactAVLTreeTest extends BinarySearchTreeTest {
+
+    @Override
+    public BinarySearchTree<Integer> newBST() {
+        return new CompactAVLTree<>();
+    }
+
+    @Test
+    void balancedAfterSortedInsertsAndRemoves() {
+        // an AVL tree is at most 1.45 log2(n + 2) high
+        checkBalancedAfterSortedInsertsAndRemoves(new CompactAVLTree<>(), 1.45);
+    }
+}
@@ -0,0 +1,12 @@
+package test;
+
+import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactBinarySearchTree;
+
+class CompactBinarySearchTreeTest extends BinarySearchTreeTest {
+
+    @Override
+    public BinarySearchTree<Integer> newBST() {
+        return new CompactBinarySearchTree<>();
+    }
+}
@@ -0,0 +1,19 @@
+package test;
+
+import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactRBTree;
+import org.junit.jupiter.api.Test;
+
+class CompactRBTreeTest extends BinarySearchTreeTest {
+
+    @Override
+    public BinarySearchTree<Integer> newBST() {
+        return new CompactRBTree<>();
+    }
+
+    @Test
+    void balancedAfterSortedInsertsAndRemoves() {
+        // a red-black tree is at most 2 log2(n + 1) high
+        checkBalancedAfterSortedInsertsAndRemoves(new CompactRBTree<>(), 2);
+    }
+}
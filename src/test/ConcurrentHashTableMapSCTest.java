@@ -0,0 +1,154 @@
+package test;
+
+import material.maps.ConcurrentHashTableMapSC;
+import material.maps.Entry;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHashTableMapSCTest extends HashTableMapTest {
+
+    private static final int THREADS = 8;
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new ConcurrentHashTableMapSC<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new ConcurrentHashTableMapSC<>(capacity);
+    }
+
+    @Test
+    void concurrentPut() throws Exception {
+        // small table and few stripes, so the writers resize it many times
+        Map<Integer, Integer> m = new ConcurrentHashTableMapSC<>(2, 4);
+        final int perThread = 20000;
+        runConcurrently(t -> {
+            for (int i = t * perThread; i < (t + 1) * perThread; i++) {
+                assertNull(m.put(i, -i));
+            }
+        });
+        assertEquals(THREADS * perThread, m.size());
+        for (int i = 0; i < THREADS * perThread; i++) {
+            assertEquals(-i, m.get(i).intValue());
+        }
+    }
+
+    @Test
+    void concurrentPutRemoveWithReaders() throws Exception {
+        Map<Integer, Integer> m = new ConcurrentHashTableMapSC<>(16, 4);
+        final int stable = 1000;
+        for (int i = 0; i < stable; i++) {
+            m.put(i, i);
+        }
+        runConcurrently(t -> {
+            if (t % 2 == 0) {
+                // writers churn their own keys, outside the stable range
+                int base = stable + t * 1000;
+                for (int round = 0; round < 50; round++) {
+                    for (int i = base; i < base + 1000; i++) {
+                        m.put(i, i);
+                    }
+                    for (int i = base; i < base + 1000; i++) {
+                        assertEquals(i, m.remove(i).intValue());
+                    }
+                }
+            } else {
+                // readers must always see the stable keys, and iterate without failing
+                for (int round = 0; round < 50; round++) {
+                    for (int i = 0; i < stable; i++) {
+                        assertEquals(i, m.get(i).intValue());
+                    }
+                    int seen = 0;
+                    for (Entry<Integer, Integer> e : m.entries()) {
+                        assertEquals(e.getKey(), e.getValue());
+                        seen++;
+                    }
+                    assertTrue(seen >= stable);
+                }
+            }
+        });
+        assertEquals(stable, m.size());
+        int count = 0;
+        for (Integer key : m.keys()) {
+            assertTrue(key < stable);
+            count++;
+        }
+        assertEquals(stable, count);
+    }
+
+    /**
+     * Key whose hash code is always the same, so every entry lands in one
+     * stripe.
+     */
+    private static class SameHashKey {
+        private final int id;
+
+        SameHashKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameHashKey && ((SameHashKey) o).id == id;
+        }
+    }
+
+    @Test
+    void oneCrowdedStripeDoesNotGrowTheTable() {
+        Map<SameHashKey, Integer> m = new ConcurrentHashTableMapSC<>();
+        final int n = 5000;
+        for (int i = 0; i < n; i++) {
+            m.put(new SameHashKey(i), i);
+        }
+        assertEquals(n, m.size());
+        // the spliterator halves the bucket range on every split, so the
+        // number of splits is log2 of the table length
+        int splits = 0;
+        Spliterator<Entry<SameHashKey, Integer>> spliterator = m.spliterator();
+        while (spliterator.trySplit() != null) {
+            splits++;
+        }
+        assertTrue(1 << splits <= 4 * n, "table of " + (1 << splits) + " buckets");
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(pool.submit(() -> {
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(); // rethrows assertion errors of the workers
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
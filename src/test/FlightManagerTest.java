@@ -5,6 +5,9 @@ import usecase.Flight;
 import usecase.FlightManager;
 import usecase.Passenger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -585,6 +588,49 @@ class FlightManagerTest {
 
     }
 
+    @org.junit.jupiter.api.Test
+    void flightsByDate_ManyFlights() {
+        // enough flights for the scans to run as parallel streams
+        FlightManager big = new FlightManager(20000, 10);
+        for (int code = 0; code < 20000; code++) {
+            Flight flight = big.addFlight("IBE", code, 2019, 1 + code % 12, 1 + code % 28);
+            flight.setDestination(code % 5 == 0 ? "Madrid" : "Paris");
+            big.updateFlight("IBE", code, 2019, 1 + code % 12, 1 + code % 28, flight);
+        }
+        int count = 0;
+        for (Flight flight : big.flightsByDate(2019, 5, 5)) {
+            assertEquals(5, flight.getMonth());
+            assertEquals(5, flight.getDay());
+            count++;
+        }
+        assertEquals(20000 / 84 + (20000 % 84 > 4 ? 1 : 0), count);
+        int toMadrid = 0;
+        for (Flight flight : big.getFlightsByDestination("Madrid", 2019, 5, 5)) {
+            assertEquals("Madrid", flight.getDestination());
+            toMadrid++;
+        }
+        assertTrue(toMadrid > 0 && toMadrid < count);
+        assertThrows(RuntimeException.class, () -> big.getFlightsByDestination("Lisboa", 2019, 5, 5));
+    }
+
+    @org.junit.jupiter.api.Test
+    void registerStatistics() throws Exception {
+        manager.registerStatistics("flight-manager-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName flights = new ObjectName(
+                "material.maps:type=HashTable,name=" + ObjectName.quote("flight-manager-test.flights"));
+        try {
+            manager.addFlight("IBE", 1234, 2019, 11, 5);
+            assertTrue((Integer) server.getAttribute(flights, "Size") > 0);
+            assertTrue((Boolean) server.getAttribute(flights, "StatisticsEnabled"));
+        } finally {
+            for (String map : new String[]{"flights", "passengers", "passengersByFlight", "flightsByPassenger"}) {
+                server.unregisterMBean(new ObjectName("material.maps:type=HashTable,name="
+                        + ObjectName.quote("flight-manager-test." + map)));
+            }
+        }
+    }
+
     private ArrayList<Passenger> getSortedPassengers(Iterable<Passenger> passengers) {
         ArrayList<Passenger> list = new ArrayList<>();
         for (Passenger passenger : passengers) {
@@ -0,0 +1,130 @@
+package test;
+
+import material.maps.Entry;
+import material.maps.HashTableMapCuckoo;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapCuckooTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapCuckoo<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapCuckoo<>(capacity);
+    }
+
+    /**
+     * Key with a fixed hash code.
+     */
+    private static final class CollidingKey {
+
+        private final int id;
+        private final int hash;
+
+        CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+    }
+
+    @Test
+    void randomOperations() {
+        // evictions and the stash move entries around, check that none gets lost
+        Map<Integer, Integer> cuckoo = new HashTableMapCuckoo<>(4);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random rand = new Random(19);
+        for (int i = 0; i < 200000; i++) {
+            Integer key = rand.nextInt(3000);
+            switch (rand.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, i), cuckoo.put(key, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), cuckoo.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), cuckoo.get(key));
+            }
+            assertEquals(expected.size(), cuckoo.size());
+        }
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        for (Entry<Integer, Integer> e : cuckoo.entries()) {
+            assertNull(seen.put(e.getKey(), e.getValue()));
+        }
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void boundedProbesAtHighLoad() {
+        // 4096 slots filled up to the growth threshold
+        HashTableMapCuckoo<Integer, Integer> cuckoo = new HashTableMapCuckoo<>(4096);
+        Random rand = new Random(7);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        while (expected.size() < 3686) {
+            int key = rand.nextInt();
+            expected.put(key, key);
+            cuckoo.put(key, key);
+        }
+        assertEquals(expected.size(), cuckoo.size());
+        for (Integer key : expected.keySet()) {
+            assertEquals(key, cuckoo.get(key));
+            assertTrue(cuckoo.probeLength(key) <= 3);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(cuckoo.probeLength(rand.nextInt()) <= 3);
+        }
+    }
+
+    @Test
+    void sameHashCode() {
+        // more keys than both buckets and the stash can hold: the stash has to grow
+        HashTableMapCuckoo<CollidingKey, Integer> cuckoo = new HashTableMapCuckoo<>(64);
+        for (int i = 0; i < 40; i++) {
+            assertNull(cuckoo.put(new CollidingKey(i, 42), i));
+        }
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, cuckoo.get(new CollidingKey(i, 42)).intValue());
+        }
+        for (int i = 0; i < 40; i += 2) {
+            assertEquals(i, cuckoo.remove(new CollidingKey(i, 42)).intValue());
+        }
+        assertEquals(20, cuckoo.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals((i % 2 == 0) ? null : Integer.valueOf(i), cuckoo.get(new CollidingKey(i, 42)));
+        }
+    }
+
+    @Test
+    void trimToSize() {
+        HashTableMapCuckoo<String, Integer> cuckoo = HashTableMapCuckoo.withExpectedSize(100000);
+        for (int i = 0; i < 100; i++) {
+            cuckoo.put(Integer.toString(i), i);
+        }
+        cuckoo.trimToSize();
+        assertEquals(100, cuckoo.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, cuckoo.get(Integer.toString(i)).intValue());
+        }
+        cuckoo.put("Jose", 912127001);
+        assertEquals(912127001, cuckoo.get("Jose").intValue());
+    }
+}
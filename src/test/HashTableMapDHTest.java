@@ -0,0 +1,111 @@
+package test;
+
+import material.maps.HashTableMapDH;
+import material.maps.HashTableMonitor;
+import material.maps.HashTableStats;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapDHTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapDH<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapDH<>(capacity);
+    }
+
+    /**
+     * Key with a fixed hash code, so that all of them share a probe sequence.
+     */
+    private static final class CollidingKey {
+
+        private final int id;
+        private final int hash;
+
+        CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+    }
+
+    @Test
+    void collidingNegativeHashCodes() {
+        for (boolean powerOfTwo : new boolean[]{false, true}) {
+            for (int hash : new int[]{-1, -7919, Integer.MIN_VALUE, 12345}) {
+                // no rehash below 5 entries, so the keys have to fill the table along one probe sequence
+                HashTableMapDH<CollidingKey, Integer> dh = new HashTableMapDH<>(10, powerOfTwo);
+                Set<Integer> lengths = new HashSet<>();
+                for (int i = 0; i < 5; i++) {
+                    assertNull(dh.put(new CollidingKey(i, hash), i));
+                }
+                for (int i = 0; i < 5; i++) {
+                    CollidingKey key = new CollidingKey(i, hash);
+                    assertEquals(i, dh.get(key).intValue());
+                    lengths.add(dh.probeLength(key));
+                }
+                assertEquals(Set.of(1, 2, 3, 4, 5), lengths);
+            }
+        }
+    }
+
+    @Test
+    void probeLengthHistogram() {
+        HashTableMapDH<Integer, Integer> dh = new HashTableMapDH<>(64);
+        for (int i = 0; i < 1000; i++) {
+            dh.put(i, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            dh.remove(i);
+        }
+        HashTableStats stats = dh.getStatistics();
+        int[] histogram = stats.getChainLengthHistogram();
+        assertEquals(0, histogram[0]);
+        assertTrue(histogram[1] > 0);
+        int entries = 0;
+        for (int count : histogram) {
+            entries += count;
+        }
+        assertEquals(500, entries);
+        assertEquals(500, stats.getTombstones()); // too few to trigger a purge
+    }
+
+    @Test
+    void monitorThroughJmx() throws Exception {
+        HashTableMapDH<Integer, Integer> dh = new HashTableMapDH<>(16);
+        ObjectName name = HashTableMonitor.register("dh-test", dh);
+        try {
+            assertTrue(dh.isStatisticsEnabled());
+            for (int i = 0; i < 100; i++) {
+                dh.put(i, i);
+            }
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(100, server.getAttribute(name, "Size"));
+            assertTrue((Long) server.getAttribute(name, "RehashCount") > 0);
+            assertTrue(((int[]) server.getAttribute(name, "ChainLengthHistogram")).length > 1);
+        } finally {
+            HashTableMonitor.unregister(name);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package test;
+
+import material.maps.Entry;
+import material.maps.HashTableMapFlatSC;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapFlatSCTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapFlatSC<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapFlatSC<>(capacity);
+    }
+
+    @Test
+    void randomOperations() {
+        // removals move the last entry into the freed position, check that no link gets lost
+        Map<Integer, Integer> flat = new HashTableMapFlatSC<>(2);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random rand = new Random(12);
+        for (int i = 0; i < 200000; i++) {
+            Integer key = rand.nextInt(3000);
+            switch (rand.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, i), flat.put(key, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), flat.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), flat.get(key));
+            }
+            assertEquals(expected.size(), flat.size());
+        }
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        for (Entry<Integer, Integer> e : flat.entries()) {
+            assertNull(seen.put(e.getKey(), e.getValue()));
+        }
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void trimToSize() {
+        HashTableMapFlatSC<String, Integer> flat = HashTableMapFlatSC.withExpectedSize(100000);
+        for (int i = 0; i < 100; i++) {
+            flat.put(Integer.toString(i), i);
+        }
+        flat.trimToSize();
+        assertEquals(100, flat.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, flat.get(Integer.toString(i)).intValue());
+        }
+        flat.put("Jose", 912127001);
+        assertEquals(912127001, flat.get("Jose").intValue());
+    }
+}
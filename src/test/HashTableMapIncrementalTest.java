@@ -0,0 +1,77 @@
+package test;
+
+import material.maps.AbstractHashTableMap;
+import material.maps.Entry;
+import material.maps.HashTableMapDH;
+import material.maps.HashTableMapLP;
+import material.maps.HashTableMapQP;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the map tests with incremental rehash enabled.
+ */
+class HashTableMapIncrementalTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        HashTableMapDH<K, V> map = new HashTableMapDH<>();
+        map.setIncrementalRehash(true);
+        return map;
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        HashTableMapDH<K, V> map = new HashTableMapDH<>(capacity);
+        map.setIncrementalRehash(true);
+        return map;
+    }
+
+    @Test
+    void randomOperations() {
+        List<AbstractHashTableMap<Integer, Integer>> maps = List.of(
+                new HashTableMapLP<>(4), new HashTableMapQP<>(4), new HashTableMapDH<>(4),
+                new HashTableMapLP<>(4, true), new HashTableMapQP<>(4, true), new HashTableMapDH<>(4, true));
+        for (AbstractHashTableMap<Integer, Integer> map : maps) {
+            map.setIncrementalRehash(true);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            Random rand = new Random(13);
+            for (int i = 0; i < 100000; i++) {
+                // the key range grows over time, so the table keeps growing while it is used
+                Integer key = rand.nextInt(1 + i / 10);
+                switch (rand.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        assertEquals(expected.put(key, i), map.put(key, i));
+                        break;
+                    case 2:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.get(key), map.get(key));
+                }
+                assertEquals(expected.size(), map.size());
+                if (i % 10000 == 0) {
+                    assertSameEntries(expected, map);
+                }
+            }
+            assertSameEntries(expected, map);
+            map.setIncrementalRehash(false); // finishes the migration in progress
+            assertSameEntries(expected, map);
+        }
+    }
+
+    private static void assertSameEntries(HashMap<Integer, Integer> expected, Map<Integer, Integer> map) {
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        for (Entry<Integer, Integer> e : map.entries()) {
+            assertNull(seen.put(e.getKey(), e.getValue()));
+        }
+        assertEquals(expected, seen);
+    }
+}
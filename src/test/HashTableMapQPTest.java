@@ -0,0 +1,50 @@
+package test;
+
+import material.maps.HashTableMapQP;
+import material.maps.Map;
+import material.maps.ProbingStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapQPTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapQP<>(1024, true);
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapQP<>(capacity, true);
+    }
+
+    @Test
+    void triangularOffsetsVisitEveryBucket() {
+        for (int capacity = 1; capacity <= 1 << 12; capacity <<= 1) {
+            boolean[] visited = new boolean[capacity];
+            for (int i = 0; i < capacity; i++) {
+                visited[ProbingStrategy.TRIANGULAR.offset(0, i, capacity) & (capacity - 1)] = true;
+            }
+            for (int j = 0; j < capacity; j++) {
+                assertTrue(visited[j], "capacity " + capacity + ", bucket " + j);
+            }
+        }
+    }
+
+    @Test
+    void triangularOffsetsDoNotOverflow() {
+        int capacity = 1 << 30;
+        int i = 100000; // i(i+1) doesn't fit in an int
+        long expected = ((long) i * (i + 1) / 2) % capacity;
+        assertEquals(expected, ProbingStrategy.TRIANGULAR.offset(0, i, capacity) & (capacity - 1));
+    }
+
+    @Test
+    void quadraticOffsetsAreNonNegative() {
+        for (int i = 0; i < 100000; i += 997) {
+            int offset = ProbingStrategy.QUADRATIC.offset(0, i, 1000);
+            assertTrue(offset >= 0 && offset < 1000);
+        }
+    }
+}
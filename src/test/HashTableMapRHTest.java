@@ -0,0 +1,76 @@
+package test;
+
+import material.maps.HashTableMapRH;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapRHTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapRH<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapRH<>(capacity);
+    }
+
+    @Test
+    void invalidLoadFactor() {
+        assertThrows(RuntimeException.class, () -> new HashTableMapRH<String, Integer>(16, 1.0f));
+        assertThrows(RuntimeException.class, () -> new HashTableMapRH<String, Integer>(16, 0.0f));
+    }
+
+    @Test
+    void incrementalRehashNotSupported() {
+        HashTableMapRH<String, Integer> rh = new HashTableMapRH<>();
+        rh.setIncrementalRehash(false);
+        UnsupportedOperationException exception = assertThrows(UnsupportedOperationException.class,
+                () -> rh.setIncrementalRehash(true));
+        assertEquals("Robin Hood hashing does not support incremental rehash.", exception.getMessage());
+    }
+
+    @Test
+    void highLoadFactorChurn() {
+        Map<Integer, Integer> rh = new HashTableMapRH<>(1024, 0.9f);
+        java.util.Map<Integer, Integer> expected = new HashMap<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int key = rnd.nextInt(2000);
+            if (rnd.nextBoolean()) {
+                assertEquals(expected.put(key, i), rh.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), rh.remove(key));
+            }
+            assertEquals(expected.size(), rh.size());
+        }
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), rh.get(key));
+        }
+    }
+
+    @Test
+    void trimToSize() {
+        HashTableMapRH<String, Integer> rh = new HashTableMapRH<>(100000);
+        for (int i = 0; i < 100; i++) {
+            rh.put(Integer.toString(i), i);
+        }
+        rh.trimToSize();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, rh.get(Integer.toString(i)).intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            rh.remove(Integer.toString(i));
+        }
+        rh.trimToSize();
+        assertTrue(rh.isEmpty());
+        rh.put("Jose", 912127001);
+        assertEquals(912127001, rh.get("Jose").intValue());
+    }
+}
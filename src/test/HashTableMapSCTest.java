@@ -0,0 +1,209 @@
+package test;
+
+import material.maps.Entry;
+import material.maps.HashTableMapSC;
+import material.maps.HashTableStats;
+import material.maps.Map;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashTableMapSCTest extends HashTableMapTest {
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance() {
+        return new HashTableMapSC<>();
+    }
+
+    @Override
+    public <K, V> Map<K, V> newTestMapInstance(int capacity) {
+        return new HashTableMapSC<>(capacity);
+    }
+
+    @Test
+    void trimToSize() {
+        HashTableMapSC<String, Integer> sc = new HashTableMapSC<>(100000);
+        for (int i = 0; i < 100; i++) {
+            sc.put(Integer.toString(i), i);
+        }
+        sc.trimToSize();
+        assertEquals(100, sc.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, sc.get(Integer.toString(i)).intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            sc.remove(Integer.toString(i));
+        }
+        sc.trimToSize();
+        assertTrue(sc.isEmpty());
+        sc.put("Jose", 912127001);
+        assertEquals(912127001, sc.get("Jose").intValue());
+    }
+
+    /**
+     * Comparable key whose hash code only takes a few values, so chains get long.
+     */
+    private static class CollidingKey implements Comparable<CollidingKey> {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int compareTo(CollidingKey o) {
+            return Integer.compare(id, o.id);
+        }
+    }
+
+    @Test
+    void collidingComparableKeys() {
+        Map<CollidingKey, Integer> sc = new HashTableMapSC<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random rand = new Random(11);
+        for (int i = 0; i < 50000; i++) {
+            int id = rand.nextInt(300);
+            // a few chains grow well over the tree threshold and shrink back under it
+            switch (rand.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(id, i), sc.put(new CollidingKey(id), i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(id), sc.remove(new CollidingKey(id)));
+                    break;
+                default:
+                    assertEquals(expected.get(id), sc.get(new CollidingKey(id)));
+            }
+            assertEquals(expected.size(), sc.size());
+        }
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        for (Entry<CollidingKey, Integer> e : sc.entries()) {
+            assertNull(seen.put(e.getKey().id, e.getValue()));
+        }
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void collidingKeysOfDifferentClasses() {
+        Map<Object, Integer> sc = new HashTableMapSC<>();
+        for (int i = 0; i < 30; i++) {
+            sc.put(new CollidingKey(3 * i), i); // all of them with hash code 0
+        }
+        sc.put(0, -1); // Integer 0 also has hash code 0, it can't join a tree of CollidingKey
+        sc.put("", -2); // and neither can "", whose hash code is 0 too
+        assertEquals(32, sc.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i, sc.get(new CollidingKey(3 * i)).intValue());
+        }
+        assertEquals(-1, sc.get(0).intValue());
+        assertEquals(-2, sc.remove("").intValue());
+        assertNull(sc.get(""));
+        assertEquals(31, sc.size());
+    }
+
+    /**
+     * Key of another class that equals the CollidingKey of the same id.
+     */
+    private static class CollidingSubKey extends CollidingKey {
+        CollidingSubKey(int id) {
+            super(id);
+        }
+    }
+
+    @Test
+    void equalKeysOfDifferentClasses() {
+        Map<CollidingKey, Integer> sc = new HashTableMapSC<>();
+        for (int i = 0; i < 30; i++) {
+            sc.put(new CollidingKey(3 * i), i); // all in one bucket, kept as a tree
+        }
+        assertEquals(2, sc.put(new CollidingSubKey(6), -1).intValue());
+        assertEquals(30, sc.size());
+        assertEquals(-1, sc.get(new CollidingKey(6)).intValue());
+        assertEquals(-1, sc.get(new CollidingSubKey(6)).intValue());
+        assertEquals(3, sc.remove(new CollidingSubKey(9)).intValue());
+        assertNull(sc.get(new CollidingKey(9)));
+        assertEquals(29, sc.size());
+        int count = 0;
+        for (CollidingKey key : sc.keys()) {
+            count++;
+        }
+        assertEquals(29, count);
+    }
+
+    /**
+     * Key whose compareTo considers every key equal, although equals doesn't.
+     */
+    private static class UnorderedKey implements Comparable<UnorderedKey> {
+        private final int id;
+
+        UnorderedKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof UnorderedKey && ((UnorderedKey) o).id == id;
+        }
+
+        @Override
+        public int compareTo(UnorderedKey o) {
+            return 0;
+        }
+    }
+
+    @Test
+    void compareToInconsistentWithEquals() {
+        Map<UnorderedKey, Integer> sc = new HashTableMapSC<>();
+        for (int i = 0; i < 40; i++) {
+            sc.put(new UnorderedKey(i), i);
+        }
+        assertEquals(40, sc.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, sc.get(new UnorderedKey(i)).intValue());
+        }
+        for (int i = 0; i < 40; i += 2) {
+            assertEquals(i, sc.remove(new UnorderedKey(i)).intValue());
+        }
+        for (int i = 0; i < 40; i++) {
+            Integer value = sc.get(new UnorderedKey(i));
+            assertEquals((i % 2 == 0) ? null : i, value);
+        }
+    }
+
+    @Test
+    void chainLengthHistogram() {
+        HashTableMapSC<Integer, Integer> sc = new HashTableMapSC<>(64);
+        for (int i = 0; i < 1000; i++) {
+            sc.put(i, i);
+        }
+        HashTableStats stats = sc.getStatistics();
+        int[] histogram = stats.getChainLengthHistogram();
+        int buckets = 0;
+        int entries = 0;
+        for (int length = 0; length < histogram.length; length++) {
+            buckets += histogram[length];
+            entries += length * histogram[length];
+        }
+        assertEquals(stats.getCapacity(), buckets);
+        assertEquals(1000, entries);
+        assertEquals(0, stats.getTombstones());
+    }
+}
@@ -1,8 +1,11 @@
 package test;
 
+import material.maps.Cursor;
 import material.maps.Entry;
 import material.maps.HashTableMapLP;
+import material.maps.HashTableStats;
 import material.maps.Map;
+import material.maps.Monitorable;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,13 +13,14 @@ import org.junit.jupiter.api.Test;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class HashTableMapTest {
     Integer output, oldValue;
     Map<String, Integer> map;
 
 
-    public static <K,V> Map<K, V> newTestMapInstance() {
+    public <K,V> Map<K, V> newTestMapInstance() {
         return new HashTableMapLP<>();
     }
 
@@ -265,6 +269,210 @@ class HashTableMapTest {
     }
 
 
+    @Test
+    void churn() {
+        // Steady-state put/remove workload: removed entries must not pile up
+        map = newTestMapInstance(64);
+        final int live = 20;
+        for (int i = 0; i < live; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        for (int i = live; i < 20000; i++) {
+            assertNull(map.put(Integer.toString(i), i));
+            assertEquals(i - live, map.remove(Integer.toString(i - live)).intValue());
+            assertEquals(live, map.size());
+        }
+        for (int i = 0; i < 20000 - live; i++) {
+            assertNull(map.get(Integer.toString(i)));
+        }
+        for (int i = 20000 - live; i < 20000; i++) {
+            assertEquals(i, map.get(Integer.toString(i)).intValue());
+        }
+    }
+
+    @Test
+    void shrink() {
+        map = newTestMapInstance(16);
+        final int n = 10000;
+        for (int i = 0; i < n; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        // bulk unload, the table shrinks several times on the way down
+        for (int i = 10; i < n; i++) {
+            assertEquals(i, map.remove(Integer.toString(i)).intValue());
+        }
+        assertEquals(10, map.size());
+        for (int i = 0; i < n; i++) {
+            Integer integer = map.get(Integer.toString(i));
+            if (i < 10) {
+                assertEquals(i, integer.intValue());
+            } else {
+                assertNull(integer);
+            }
+        }
+        // and grows again
+        for (int i = 10; i < n; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        assertEquals(n, map.size());
+    }
+
+    @Test
+    void putAll() {
+        map.put("0", -1);
+        map.put("extra", 42);
+        Map<String, Integer> other = newTestMapInstance(16);
+        final int n = 5000;
+        for (int i = 0; i < n; i++) {
+            other.put(Integer.toString(i), i);
+        }
+        map.putAll(other);
+        assertEquals(n + 1, map.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, map.get(Integer.toString(i)).intValue());
+        }
+        assertEquals(42, map.get("extra").intValue());
+        assertEquals(n, other.size());
+    }
+
+    @Test
+    void iterateAfterRemove() {
+        map = newTestMapInstance(4);
+        for (int i = 0; i < 200; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            map.remove(Integer.toString(i));
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (Entry<String, Integer> e : map.entries()) {
+            assertEquals(Integer.toString(e.getValue()), e.getKey());
+            assertTrue(seen.add(e.getValue()));
+        }
+        assertEquals(100, seen.size());
+        for (int i = 1; i < 200; i += 2) {
+            assertTrue(seen.contains(i));
+        }
+    }
+
+    @Test
+    void forEachAndCursor() {
+        map = newTestMapInstance(4);
+        for (int i = 0; i < 500; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        for (int i = 0; i < 500; i += 3) {
+            map.remove(Integer.toString(i));
+        }
+        HashMap<String, Integer> expected = new HashMap<>();
+        for (Entry<String, Integer> e : map.entries()) {
+            expected.put(e.getKey(), e.getValue());
+        }
+        assertEquals(map.size(), expected.size());
+
+        HashMap<String, Integer> viaForEach = new HashMap<>();
+        map.forEachEntry((k, v) -> assertNull(viaForEach.put(k, v)));
+        assertEquals(expected, viaForEach);
+
+        // Iterable.forEach with an overloaded method reference (List.add) must stay unambiguous
+        List<Entry<String, Integer>> entries = new ArrayList<>();
+        map.forEach(entries::add);
+        assertEquals(expected.size(), entries.size());
+
+        List<String> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.size(), keys.size());
+        assertEquals(expected.keySet(), new HashSet<>(keys));
+        List<Integer> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertEquals(expected.size(), values.size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(values));
+
+        HashMap<String, Integer> viaCursor = new HashMap<>();
+        Cursor<String, Integer> c = map.cursor();
+        assertThrows(IllegalStateException.class, c::key);
+        while (c.advance()) {
+            assertNull(viaCursor.put(c.key(), c.value()));
+        }
+        assertFalse(c.advance());
+        assertThrows(IllegalStateException.class, c::value);
+        assertEquals(expected, viaCursor);
+    }
+
+    @Test
+    void spliteratorAndStreams() {
+        map = newTestMapInstance(4);
+        final int n = 3000;
+        for (int i = 0; i < n; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        for (int i = 0; i < n; i += 4) {
+            map.remove(Integer.toString(i));
+        }
+        Spliterator<Entry<String, Integer>> whole = map.spliterator();
+        assertTrue(whole.hasCharacteristics(Spliterator.DISTINCT));
+        assertEquals(map.size(), whole.estimateSize());
+
+        // split as far as possible and check that every entry shows up exactly once
+        Set<String> seen = new HashSet<>();
+        Deque<Spliterator<Entry<String, Integer>>> pending = new ArrayDeque<>();
+        pending.push(map.spliterator());
+        while (!pending.isEmpty()) {
+            Spliterator<Entry<String, Integer>> s = pending.pop();
+            Spliterator<Entry<String, Integer>> prefix = s.trySplit();
+            if (prefix != null) {
+                pending.push(prefix);
+                pending.push(s);
+            } else {
+                s.forEachRemaining(e -> assertTrue(seen.add(e.getKey())));
+            }
+        }
+        assertEquals(map.size(), seen.size());
+
+        long expectedSum = 0;
+        for (int i = 1; i < n; i++) {
+            if (i % 4 != 0) {
+                expectedSum += i;
+            }
+        }
+        assertEquals(expectedSum, map.stream().mapToLong(Entry::getValue).sum());
+        assertEquals(expectedSum, map.parallelStream().mapToLong(Entry::getValue).sum());
+        assertEquals(map.size(), map.parallelStream().map(Entry::getKey).distinct().count());
+    }
+
+    @Test
+    void statistics() {
+        map = newTestMapInstance(16);
+        assumeTrue(map instanceof Monitorable);
+        Monitorable monitorable = (Monitorable) map;
+        assertFalse(monitorable.isStatisticsEnabled());
+        monitorable.setStatisticsEnabled(true);
+        final int n = 1000;
+        for (int i = 0; i < n; i++) {
+            map.put(Integer.toString(i), i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < n; i++) {
+                map.get(Integer.toString(i));
+            }
+        }
+        HashTableStats stats = monitorable.getStatistics();
+        assertEquals(n, stats.getSize());
+        assertTrue(stats.getCapacity() >= n);
+        assertEquals((double) n / stats.getCapacity(), stats.getLoadFactor(), 1e-9);
+        assertTrue(stats.getRehashCount() > 0);
+        assertTrue(stats.getRehashNanos() > 0);
+        assertTrue(stats.getSampledLookups() > 0);
+        assertTrue(stats.getAverageProbeLength() > 0);
+        assertTrue(stats.getMaxProbeLength() >= stats.getAverageProbeLength());
+
+        monitorable.setStatisticsEnabled(false);
+        HashTableStats disabled = monitorable.getStatistics();
+        assertEquals(n, disabled.getSize());
+        assertEquals(0, disabled.getRehashCount());
+        assertEquals(0, disabled.getSampledLookups());
+    }
+
     @Test
     void forced_collitions(){
         class EvilHashCodeObject {
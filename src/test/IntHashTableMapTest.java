@@ -0,0 +1,158 @@
+package test;
+
+import material.maps.Entry;
+import material.maps.IntHashTableMap;
+import material.maps.Map;
+import material.maps.ProbingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashTableMapTest {
+
+    @Test
+    void randomOperations() {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            IntHashTableMap<Integer> map = new IntHashTableMap<>(4, probing);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            Random rand = new Random(probing.ordinal());
+            for (int i = 0; i < 200000; i++) {
+                int key = rand.nextInt(4000) - 2000; // includes 0 and negative keys
+                int op = rand.nextInt(3);
+                if (op == 0) {
+                    assertEquals(expected.put(key, i), map.putInt(key, i), probing.name());
+                } else if (op == 1) {
+                    assertEquals(expected.remove(key), map.removeInt(key), probing.name());
+                } else {
+                    assertEquals(expected.get(key), map.getInt(key), probing.name());
+                    assertEquals(expected.containsKey(key), map.containsKey(key), probing.name());
+                }
+                assertEquals(expected.size(), map.size(), probing.name());
+            }
+            HashMap<Integer, Integer> seen = new HashMap<>();
+            for (Entry<Integer, Integer> e : map.entries()) {
+                assertNull(seen.put(e.getKey(), e.getValue()));
+            }
+            assertEquals(expected, seen, probing.name());
+        }
+    }
+
+    @Test
+    void zeroKey() {
+        IntHashTableMap<String> map = new IntHashTableMap<>();
+        assertNull(map.getInt(0));
+        assertFalse(map.containsKey(0));
+        assertNull(map.putInt(0, "zero"));
+        assertEquals("zero", map.getInt(0));
+        assertEquals(1, map.size());
+        assertEquals("zero", map.putInt(0, "cero"));
+        map.putInt(Integer.MIN_VALUE, "min");
+        map.putInt(Integer.MAX_VALUE, "max");
+        Set<Integer> keys = new HashSet<>();
+        for (Integer k : map.keys()) {
+            keys.add(k);
+        }
+        assertEquals(Set.of(0, Integer.MIN_VALUE, Integer.MAX_VALUE), keys);
+        assertEquals("cero", map.removeInt(0));
+        assertNull(map.getInt(0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void mapInterface() {
+        Map<Integer, String> map = new IntHashTableMap<>(16, ProbingStrategy.DOUBLE);
+        assertTrue(map.isEmpty());
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31, "v" + i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("v" + i, map.get(i * 31));
+        }
+        int values = 0;
+        for (String v : map.values()) {
+            assertTrue(v.startsWith("v"));
+            values++;
+        }
+        assertEquals(1000, values);
+        assertThrows(IllegalStateException.class, () -> map.get(null));
+        assertThrows(IllegalStateException.class, () -> map.put(null, "x"));
+    }
+
+    @Test
+    void numericValues() {
+        // the primitive methods have their own names, so boxed calls are not ambiguous
+        IntHashTableMap<Integer> map = new IntHashTableMap<>();
+        assertNull(map.put(5, 7));
+        assertEquals(7, map.get(5));
+        assertEquals(7, map.putInt(5, 8));
+        assertEquals(8, map.getInt(5));
+        assertEquals(8, map.remove(5));
+        assertNull(map.getInt(5));
+    }
+
+    @Test
+    void trimToSize() {
+        IntHashTableMap<Integer> map = IntHashTableMap.withExpectedSize(100000);
+        for (int i = 1; i <= 100; i++) {
+            map.putInt(i, i);
+        }
+        map.trimToSize();
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(i, map.getInt(i));
+        }
+        assertEquals(100, map.size());
+    }
+
+    @Test
+    void cursorWithZeroKey() {
+        IntHashTableMap<String> map = new IntHashTableMap<>(4);
+        HashMap<Integer, String> expected = new HashMap<>();
+        for (int key = -50; key <= 50; key++) {
+            map.putInt(key * 1000003, Long.toString(key));
+            expected.put(key * 1000003, Long.toString(key));
+        }
+        HashMap<Integer, String> seen = new HashMap<>();
+        IntHashTableMap.IntCursor<String> c = map.cursor();
+        assertThrows(IllegalStateException.class, c::intKey);
+        while (c.advance()) {
+            assertEquals(c.key().intValue(), c.intKey());
+            assertNull(seen.put(c.intKey(), c.value()));
+        }
+        assertFalse(c.advance());
+        assertThrows(IllegalStateException.class, c::value);
+        assertEquals(expected, seen);
+
+        HashMap<Integer, String> viaForEach = new HashMap<>();
+        map.forEachEntry((k, v) -> assertNull(viaForEach.put(k, v)));
+        assertEquals(expected, viaForEach);
+
+        map.removeInt(0);
+        c = map.cursor();
+        int count = 0;
+        while (c.advance()) {
+            assertNotEquals(0, c.intKey());
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    @Test
+    void parallelStreamWithZeroKey() {
+        IntHashTableMap<Integer> map = new IntHashTableMap<>(4);
+        long expectedSum = 0;
+        for (int i = -5000; i <= 5000; i++) {
+            map.putInt(i * 31, i);
+            expectedSum += i;
+        }
+        assertEquals(10001, map.spliterator().estimateSize());
+        assertEquals(expectedSum, map.parallelStream().mapToLong(e -> e.getValue()).sum());
+        assertEquals(1, map.parallelStream().filter(e -> e.getKey() == 0).count());
+        assertEquals(10001, map.parallelStream().map(Entry::getKey).distinct().count());
+    }
+}
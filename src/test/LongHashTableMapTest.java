@@ -0,0 +1,103 @@
+package test;
+
+import material.maps.Entry;
+import material.maps.LongHashTableMap;
+import material.maps.ProbingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashTableMapTest {
+
+    @Test
+    void randomOperations() {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            LongHashTableMap<Integer> map = new LongHashTableMap<>(4, probing);
+            HashMap<Long, Integer> expected = new HashMap<>();
+            Random rand = new Random(probing.ordinal());
+            for (int i = 0; i < 200000; i++) {
+                // high and low halves from a small range, so many keys share hash codes
+                long key = ((long) rand.nextInt(64) << 32) | rand.nextInt(64);
+                int op = rand.nextInt(3);
+                if (op == 0) {
+                    assertEquals(expected.put(key, i), map.putLong(key, i), probing.name());
+                } else if (op == 1) {
+                    assertEquals(expected.remove(key), map.removeLong(key), probing.name());
+                } else {
+                    assertEquals(expected.get(key), map.getLong(key), probing.name());
+                }
+                assertEquals(expected.size(), map.size(), probing.name());
+            }
+            HashMap<Long, Integer> seen = new HashMap<>();
+            for (Entry<Long, Integer> e : map.entries()) {
+                assertNull(seen.put(e.getKey(), e.getValue()));
+            }
+            assertEquals(expected, seen, probing.name());
+        }
+    }
+
+    @Test
+    void zeroKeyAndZeroHash() {
+        LongHashTableMap<String> map = new LongHashTableMap<>();
+        long zeroHash = (1L << 32) | 1; // Long.hashCode is 0, but it is not the empty key
+        map.putLong(zeroHash, "one-one");
+        assertNull(map.getLong(0));
+        map.putLong(0, "zero");
+        assertEquals("one-one", map.getLong(zeroHash));
+        assertEquals("zero", map.get(0L));
+        assertEquals(2, map.size());
+        assertEquals("one-one", map.removeLong(zeroHash));
+        assertEquals("zero", map.getLong(0));
+        assertThrows(IllegalStateException.class, () -> map.put(null, "x"));
+    }
+
+    @Test
+    void cursorWithZeroKey() {
+        LongHashTableMap<String> map = new LongHashTableMap<>(4);
+        HashMap<Long, String> expected = new HashMap<>();
+        for (long key = -50; key <= 50; key++) {
+            map.putLong(key * 1000003L, Long.toString(key));
+            expected.put(key * 1000003L, Long.toString(key));
+        }
+        HashMap<Long, String> seen = new HashMap<>();
+        LongHashTableMap.LongCursor<String> c = map.cursor();
+        assertThrows(IllegalStateException.class, c::longKey);
+        while (c.advance()) {
+            assertEquals(c.key().longValue(), c.longKey());
+            assertNull(seen.put(c.longKey(), c.value()));
+        }
+        assertFalse(c.advance());
+        assertThrows(IllegalStateException.class, c::value);
+        assertEquals(expected, seen);
+
+        HashMap<Long, String> viaForEach = new HashMap<>();
+        map.forEachEntry((k, v) -> assertNull(viaForEach.put(k, v)));
+        assertEquals(expected, viaForEach);
+
+        map.removeLong(0);
+        c = map.cursor();
+        int count = 0;
+        while (c.advance()) {
+            assertNotEquals(0L, c.longKey());
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    @Test
+    void parallelStreamWithZeroKey() {
+        LongHashTableMap<Integer> map = new LongHashTableMap<>(4);
+        long expectedSum = 0;
+        for (int i = -5000; i <= 5000; i++) {
+            map.putLong(i * 31L, i);
+            expectedSum += i;
+        }
+        assertEquals(10001, map.spliterator().estimateSize());
+        assertEquals(expectedSum, map.parallelStream().mapToLong(e -> e.getValue()).sum());
+        assertEquals(1, map.parallelStream().filter(e -> e.getKey() == 0).count());
+        assertEquals(10001, map.parallelStream().map(Entry::getKey).distinct().count());
+    }
+}
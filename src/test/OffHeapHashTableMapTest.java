@@ -0,0 +1,130 @@
+package test;
+
+import material.maps.Codec;
+import material.maps.Cursor;
+import material.maps.Entry;
+import material.maps.OffHeapHashTableMap;
+import material.maps.ProbingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapHashTableMapTest {
+
+    @Test
+    void randomOperations() {
+        for (ProbingStrategy probing : ProbingStrategy.values()) {
+            // values of different lengths, so updates either overwrite or append a record
+            OffHeapHashTableMap<String, String> map = new OffHeapHashTableMap<>(4, Codec.STRING, Codec.STRING, probing);
+            HashMap<String, String> expected = new HashMap<>();
+            Random rand = new Random(probing.ordinal());
+            for (int i = 0; i < 100000; i++) {
+                String key = "IBE" + rand.nextInt(3000);
+                String value = (rand.nextInt(10) == 0) ? null : Integer.toString(rand.nextInt(100000));
+                int op = rand.nextInt(3);
+                if (op == 0) {
+                    assertEquals(expected.put(key, value), map.put(key, value), probing.name());
+                } else if (op == 1) {
+                    assertEquals(expected.remove(key), map.remove(key), probing.name());
+                } else {
+                    assertEquals(expected.get(key), map.get(key), probing.name());
+                }
+                assertEquals(expected.size(), map.size(), probing.name());
+            }
+            HashMap<String, String> seen = new HashMap<>();
+            for (Entry<String, String> e : map.entries()) {
+                assertFalse(seen.containsKey(e.getKey()));
+                seen.put(e.getKey(), e.getValue());
+            }
+            assertEquals(expected, seen, probing.name());
+        }
+    }
+
+    @Test
+    void iteration() {
+        OffHeapHashTableMap<Long, Integer> map = new OffHeapHashTableMap<>(Codec.LONG, Codec.INTEGER);
+        HashMap<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            map.put(i * 1000003L, i);
+            expected.put(i * 1000003L, i);
+        }
+        HashMap<Long, Integer> viaForEach = new HashMap<>();
+        map.forEachEntry(viaForEach::put);
+        assertEquals(expected, viaForEach);
+
+        HashMap<Long, Integer> viaCursor = new HashMap<>();
+        Cursor<Long, Integer> cursor = map.cursor();
+        while (cursor.advance()) {
+            viaCursor.put(cursor.key(), cursor.value());
+        }
+        assertEquals(expected, viaCursor);
+        assertThrows(IllegalStateException.class, cursor::key);
+
+        assertEquals(5000, map.parallelStream().map(Entry::getKey).distinct().count());
+        long sum = map.parallelStream().mapToLong(Entry::getValue).sum();
+        assertEquals(4999L * 5000 / 2, sum);
+    }
+
+    @Test
+    void churnDoesNotLeak() {
+        // removed records and replaced values become garbage, which rehashing drops
+        OffHeapHashTableMap<String, String> map = new OffHeapHashTableMap<>(Codec.STRING, Codec.STRING);
+        for (int i = 0; i < 1000; i++) {
+            map.put("key" + i, "v");
+        }
+        long footprint = map.offHeapBytes();
+        Random rand = new Random(20);
+        for (int round = 0; round < 200000; round++) {
+            String key = "key" + rand.nextInt(1000);
+            if (rand.nextBoolean()) {
+                map.put(key, "value" + round); // grows the value, so it can't be overwritten
+            } else {
+                map.remove(key);
+                map.put(key, "v");
+            }
+        }
+        assertEquals(1000, map.size());
+        assertTrue(map.offHeapBytes() < 4 * footprint + (1 << 16));
+    }
+
+    @Test
+    void updatesDoNotLeak() {
+        // values of a different length are appended, only puts must also drop the old ones
+        OffHeapHashTableMap<String, String> map = new OffHeapHashTableMap<>(Codec.STRING, Codec.STRING);
+        map.put("key", "a");
+        long footprint = map.offHeapBytes();
+        for (int round = 0; round < 2000000; round++) {
+            map.put("key", (round % 2 == 0) ? "bb" : "a");
+        }
+        assertEquals(1, map.size());
+        assertEquals("a", map.get("key"));
+        assertTrue(map.offHeapBytes() < 4 * footprint + (1 << 16));
+    }
+
+    @Test
+    void largeEntries() {
+        OffHeapHashTableMap<String, String> map = new OffHeapHashTableMap<>(Codec.STRING, Codec.STRING);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String big = sb.toString();
+        map.put(big, big + "ñ€");
+        map.put("small", "x");
+        assertEquals(big + "ñ€", map.get(big));
+        assertEquals("x", map.get("small"));
+        assertNull(map.get(big.substring(1)));
+        assertEquals(big + "ñ€", map.remove(big));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void invalidKey() {
+        OffHeapHashTableMap<String, Integer> map = new OffHeapHashTableMap<>(Codec.STRING, Codec.INTEGER);
+        assertThrows(IllegalStateException.class, () -> map.put(null, 1));
+        assertThrows(IllegalStateException.class, () -> map.get(null));
+    }
+}
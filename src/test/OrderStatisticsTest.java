@@ -0,0 +1,122 @@
+package test;
+
+import material.Position;
+import material.tree.binarysearchtree.AVLTree;
+import material.tree.binarysearchtree.BinarySearchTree;
+import material.tree.binarysearchtree.CompactAVLTree;
+import material.tree.binarysearchtree.CompactBinarySearchTree;
+import material.tree.binarysearchtree.CompactRBTree;
+import material.tree.binarysearchtree.LinkedBinarySearchTree;
+import material.tree.binarysearchtree.RBTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * rank, select and countRange on every BinarySearchTree, checked against a
+ * sorted list.
+ */
+class OrderStatisticsTest {
+
+    private static final List<Supplier<BinarySearchTree<Integer>>> TREES = List.of(
+            LinkedBinarySearchTree::new, AVLTree::new, RBTree::new,
+            CompactBinarySearchTree::new, CompactAVLTree::new, CompactRBTree::new);
+
+    private static int countBelow(List<Integer> sorted, int value, boolean inclusive) {
+        int count = 0;
+        for (Integer e : sorted) {
+            if (e < value || (inclusive && e == value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void check(BinarySearchTree<Integer> tree, List<Integer> sorted, int range, Random rnd) {
+        String name = tree.getClass().getSimpleName();
+        assertEquals(sorted.size(), tree.size(), name);
+        for (int k = 0; k < sorted.size(); k++) {
+            assertEquals(sorted.get(k), tree.select(k).getElement(), name);
+        }
+        for (int value = -1; value <= range; value++) {
+            assertEquals(countBelow(sorted, value, false), tree.rank(value), name);
+        }
+        for (int i = 0; i < 200; i++) {
+            int min = rnd.nextInt(range + 2) - 1;
+            int max = min + rnd.nextInt(range / 4);
+            int expected = countBelow(sorted, max, true) - countBelow(sorted, min, false);
+            assertEquals(expected, tree.countRange(min, max), name);
+        }
+    }
+
+    @Test
+    void emptyTree() {
+        for (Supplier<BinarySearchTree<Integer>> supplier : TREES) {
+            BinarySearchTree<Integer> tree = supplier.get();
+            assertEquals(0, tree.rank(5));
+            assertEquals(0, tree.countRange(1, 10));
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> tree.select(0));
+            assertEquals("Invalid index.", exception.getMessage());
+        }
+    }
+
+    @Test
+    void duplicatesAndBounds() {
+        for (Supplier<BinarySearchTree<Integer>> supplier : TREES) {
+            BinarySearchTree<Integer> tree = supplier.get();
+            for (int value : new int[]{5, 2, 7, 7, 7, 1, 9}) {
+                tree.insert(value);
+            }
+            String name = tree.getClass().getSimpleName();
+            assertEquals(3, tree.rank(7), name);
+            assertEquals(6, tree.rank(8), name);
+            assertEquals(3, tree.countRange(7, 7), name);
+            assertEquals(4, tree.countRange(5, 8), name);
+            assertEquals(0, tree.countRange(10, 20), name);
+            assertEquals(1, tree.select(0).getElement().intValue(), name);
+            assertEquals(9, tree.select(6).getElement().intValue(), name);
+            assertThrows(RuntimeException.class, () -> tree.select(-1), name);
+            assertThrows(RuntimeException.class, () -> tree.select(7), name);
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> tree.countRange(2, 1));
+            assertEquals("Invalid range. (min>max)", exception.getMessage(), name);
+        }
+    }
+
+    @Test
+    void randomInsertsAndRemoves() {
+        final int N = 600;
+        for (Supplier<BinarySearchTree<Integer>> supplier : TREES) {
+            Random rnd = new Random(7);
+            BinarySearchTree<Integer> tree = supplier.get();
+            List<Integer> sorted = new ArrayList<>();
+            for (int i = 0; i < N; i++) {
+                int value = rnd.nextInt(N / 2);
+                tree.insert(value);
+                sorted.add(value);
+            }
+            Collections.sort(sorted);
+            check(tree, sorted, N / 2, rnd);
+
+            for (int i = 0; i < N / 2; i++) {
+                Integer value = sorted.get(rnd.nextInt(sorted.size()));
+                Position<Integer> pos = tree.find(value);
+                assertNotNull(pos);
+                tree.remove(pos);
+                sorted.remove(value);
+            }
+            check(tree, sorted, N / 2, rnd);
+
+            for (int i = 0; i < N / 2; i++) { // sorted inserts force rotations at the right end
+                tree.insert(N / 2 + i);
+                sorted.add(N / 2 + i);
+            }
+            check(tree, sorted, N, rnd);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package test;
+
+import material.tree.binarysearchtree.RBTree;
+import material.tree.binarysearchtree.BinarySearchTree;
+
+class RBTreeTest extends BinarySearchTreeTest {
+
+    @Override
+    public BinarySearchTree<Integer> newBST() {
+        return new RBTree<>();
+    }
+}
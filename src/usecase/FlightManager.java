@@ -2,20 +2,68 @@ package usecase;
 
 import material.maps.Entry;
 import material.maps.HashTableMapDH;
+import material.maps.HashTableMonitor;
 import material.maps.Map;
+import material.maps.Monitorable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author vlt23
  */
 public class FlightManager {
 
-    private Map<Flight, Flight> flightsMap = new HashTableMapDH<>();
-    private Map<String, Passenger> passengersMap = new HashTableMapDH<>();
-    private Map<Flight, List<Passenger>> flightWithAllPassengersMap = new HashTableMapDH<>();
-    private Map<Passenger, List<Flight>> passengerWithAllFlightsMap = new HashTableMapDH<>();
+    /**
+     * Number of flights from which full scans run as parallel streams.
+     */
+    private static final int PARALLEL_SCAN_THRESHOLD = 10000;
+
+    private Map<Flight, Flight> flightsMap;
+    private Map<String, Passenger> passengersMap;
+    private Map<Flight, List<Passenger>> flightWithAllPassengersMap;
+    private Map<Passenger, List<Flight>> passengerWithAllFlightsMap;
+
+    public FlightManager() {
+        this(500, 500);
+    }
+
+    /**
+     * Creates a manager whose maps are sized once for the expected number of
+     * flights and passengers, so loading them doesn't rehash.
+     *
+     * @param expectedFlights    number of flights expected
+     * @param expectedPassengers number of passengers expected
+     */
+    public FlightManager(int expectedFlights, int expectedPassengers) {
+        flightsMap = HashTableMapDH.withExpectedSize(expectedFlights);
+        passengersMap = HashTableMapDH.withExpectedSize(expectedPassengers);
+        flightWithAllPassengersMap = HashTableMapDH.withExpectedSize(expectedFlights);
+        passengerWithAllFlightsMap = HashTableMapDH.withExpectedSize(expectedPassengers);
+    }
+
+    /**
+     * Enables the statistics of the maps and publishes them through JMX, named
+     * &lt;name&gt;.flights, &lt;name&gt;.passengers, &lt;name&gt;.passengersByFlight and
+     * &lt;name&gt;.flightsByPassenger, to see how each map copes with its keys.
+     *
+     * @param name prefix of the names of the MXBeans
+     */
+    public void registerStatistics(String name) {
+        register(name + ".flights", flightsMap);
+        register(name + ".passengers", passengersMap);
+        register(name + ".passengersByFlight", flightWithAllPassengersMap);
+        register(name + ".flightsByPassenger", passengerWithAllFlightsMap);
+    }
+
+    private static void register(String name, Map<?, ?> map) {
+        if (map instanceof Monitorable) {
+            HashTableMonitor.register(name, (Monitorable) map);
+        }
+    }
 
     public Flight addFlight(String company, int flightCode, int year, int month, int day) {
         Flight flight = new Flight(company, flightCode, year, month, day);
@@ -120,15 +168,21 @@ public class FlightManager {
                 ? flightWithAllPassengersMap.get(flight) : new ArrayList<>();
     }
 
+    /**
+     * Returns a stream of all the flights, parallel when there are enough of
+     * them to make up for splitting the work.
+     */
+    private Stream<Flight> allFlights() {
+        Stream<Entry<Flight, Flight>> entries = (flightsMap.size() >= PARALLEL_SCAN_THRESHOLD)
+                ? flightsMap.parallelStream() : flightsMap.stream();
+        return entries.map(Entry::getValue);
+    }
+
     public Iterable<Flight> flightsByDate(int year, int month, int day) {
-        Iterable<Flight> flights = flightsMap.values();
-        List<Flight> toReturnFlights = new ArrayList<>();
-        for (Flight flight : flights) {
-            if (flight.compareDate(year, month, day)) {
-                toReturnFlights.add(flight.copyFlight());
-            }
-        }
-        return toReturnFlights;
+        return allFlights()
+                .filter(flight -> flight.compareDate(year, month, day))
+                .map(Flight::copyFlight)
+                .collect(Collectors.toList());
     }
 
     public Iterable<Flight> getFlightsByPassenger(Passenger passenger) {
@@ -145,17 +199,18 @@ public class FlightManager {
     }
 
     public Iterable<Flight> getFlightsByDestination(String destination, int year, int month, int day) {
-        List<Flight> flights = new ArrayList<>();
-        boolean existDest = false;
-        for (Flight flight : flightsMap.values()) {
-            if (flight.getDestination().equals(destination)) {
-                existDest = true;
-                if (flight.compareDate(year, month, day)) {
-                    flights.add(flight.copyFlight());
-                }
-            }
-        }
-        if (!existDest) {
+        AtomicBoolean existDest = new AtomicBoolean();
+        List<Flight> flights = allFlights()
+                .filter(flight -> flight.getDestination().equals(destination))
+                .filter(flight -> {
+                    if (!existDest.get()) { // read first, so the threads don't keep writing it
+                        existDest.set(true);
+                    }
+                    return flight.compareDate(year, month, day);
+                })
+                .map(Flight::copyFlight)
+                .collect(Collectors.toList());
+        if (!existDest.get()) {
             throw new RuntimeException("The destination doesn't exists.");
         }
         return flights;
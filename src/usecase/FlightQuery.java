@@ -4,10 +4,8 @@ import material.Position;
 import material.tree.binarysearchtree.BinarySearchTree;
 import material.tree.binarysearchtree.LinkedBinarySearchTree;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * @author vlt23
@@ -52,12 +50,7 @@ public class FlightQuery {
         Flight end = new Flight();
         end.setDate(end_year, end_month, end_day);
         Iterable<Position<Flight>> positions = lbstByDate.findRange(start, end);
-        Iterator<Position<Flight>> it = positions.iterator();
-        List<Flight> flights = new ArrayList<>();
-        while (it.hasNext()) {
-            flights.add(it.next().getElement());
-        }
-        return flights;
+        return flights(positions);
     }
 
     public Iterable<Flight> searchByDestinations(String start_destination, String end_destination)
@@ -67,12 +60,7 @@ public class FlightQuery {
         Flight end = new Flight();
         end.setDestination(end_destination);
         Iterable<Position<Flight>> positions = lbstByDestinations.findRange(start, end);
-        Iterator<Position<Flight>> it = positions.iterator();
-        List<Flight> flights = new ArrayList<>();
-        while (it.hasNext()) {
-            flights.add(it.next().getElement());
-        }
-        return flights;
+        return flights(positions);
     }
 
     public Iterable<Flight> searchByCompanyAndFLightCode(String start_company, int start_flightCode,
@@ -84,12 +72,28 @@ public class FlightQuery {
         end.setCompany(end_company);
         end.setFlightCode(end_flightCode);
         Iterable<Position<Flight>> positions = lbsByCompanyAndFlightCode.findRange(start, end);
-        Iterator<Position<Flight>> it = positions.iterator();
-        List<Flight> flights = new ArrayList<>();
-        while (it.hasNext()) {
-            flights.add(it.next().getElement());
-        }
-        return flights;
+        return flights(positions);
+    }
+
+    /**
+     * Returns the flights stored at the given positions. The positions are
+     * read as the flights are iterated, so nothing is copied and a caller
+     * that stops early only walks the part of the tree it used.
+     */
+    private static Iterable<Flight> flights(Iterable<Position<Flight>> positions) {
+        return () -> new Iterator<Flight>() {
+            private final Iterator<Position<Flight>> it = positions.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Flight next() {
+                return it.next().getElement();
+            }
+        };
     }
 
 }